@@ -0,0 +1,46 @@
+package com.facerecognition.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for {@code @Async} work.
+ *
+ * Mail and SMS sends run through {@code @Async("notificationExecutor")} on a small
+ * fixed pool of platform threads. JavaMail's SMTPTransport does its blocking socket
+ * I/O inside synchronized methods, which would pin the carrier of a virtual thread,
+ * so these calls are kept off the virtual threads of the pipeline's persist, notify
+ * and publish stages. A slow mail or SMS server fills the bounded queue; further
+ * sends are rejected and logged by the caller instead of holding pipeline threads.
+ */
+@Configuration
+public class AsyncConfig {
+
+    public static final String NOTIFICATION_EXECUTOR = "notificationExecutor";
+
+    @Value("${face.notifications.threads:4}")
+    private int notificationThreads;
+
+    @Value("${face.notifications.queue.capacity:500}")
+    private int notificationQueueCapacity;
+
+    @Bean(name = NOTIFICATION_EXECUTOR, destroyMethod = "close")
+    public ExecutorService notificationExecutor() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return new ThreadPoolExecutor(notificationThreads, notificationThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(notificationQueueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "notify-io-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,94 @@
+package com.facerecognition.config;
+
+import com.facerecognition.controller.CameraFrameWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+@Slf4j
+public class CameraStreamConfig implements WebSocketConfigurer {
+
+    private final CameraFrameWebSocketHandler cameraFrameWebSocketHandler;
+
+    @Value("${face.stream.max.frame.bytes:4194304}")
+    private int maxFrameBytes;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Raw binary frame ingestion, alongside the STOMP endpoint registered in WebSocketConfig
+        registry.addHandler(cameraFrameWebSocketHandler, "/ws/camera")
+            .addInterceptors(new CameraHandshakeInterceptor())
+            .setAllowedOriginPatterns("*");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        // Whole frames arrive as single binary messages, so the buffer must fit the largest frame
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxFrameBytes);
+        return container;
+    }
+
+    /**
+     * Copies camera metadata from the handshake query string into the session attributes.
+     */
+    private static class CameraHandshakeInterceptor implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+            String cameraId = params.getFirst(CameraFrameWebSocketHandler.CAMERA_ID);
+            if (cameraId == null || cameraId.isBlank()) {
+                log.warn("Rejecting camera stream without cameraId from {}", request.getRemoteAddress());
+                response.setStatusCode(HttpStatus.BAD_REQUEST);
+                return false;
+            }
+            try {
+                // Session attributes end up in a ConcurrentHashMap, so absent values are left out rather than null
+                attributes.put(CameraFrameWebSocketHandler.CAMERA_ID, cameraId);
+                putIfPresent(attributes, CameraFrameWebSocketHandler.CAMERA_TYPE, params.getFirst(CameraFrameWebSocketHandler.CAMERA_TYPE));
+                putIfPresent(attributes, CameraFrameWebSocketHandler.LATITUDE, parseDouble(params.getFirst(CameraFrameWebSocketHandler.LATITUDE)));
+                putIfPresent(attributes, CameraFrameWebSocketHandler.LONGITUDE, parseDouble(params.getFirst(CameraFrameWebSocketHandler.LONGITUDE)));
+            } catch (NumberFormatException e) {
+                log.warn("Rejecting camera stream {} with invalid coordinates", cameraId);
+                response.setStatusCode(HttpStatus.BAD_REQUEST);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
+
+        private static void putIfPresent(Map<String, Object> attributes, String key, Object value) {
+            if (value != null) {
+                attributes.put(key, value);
+            }
+        }
+
+        private static Double parseDouble(String value) {
+            return value == null || value.isBlank() ? null : Double.valueOf(value);
+        }
+    }
+}
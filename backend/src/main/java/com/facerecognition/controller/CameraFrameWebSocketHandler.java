@@ -0,0 +1,62 @@
+package com.facerecognition.controller;
+
+import com.facerecognition.dto.DetectionRequest;
+import com.facerecognition.service.CameraFrameMailbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Binary WebSocket endpoint for cameras streaming raw encoded frames (JPEG/PNG).
+ *
+ * Camera metadata is given once in the handshake query string
+ * (ws://host/api/ws/camera?cameraId=cam-1&amp;cameraType=IP&amp;latitude=..&amp;longitude=..);
+ * each binary message is one frame. Results are published on the usual
+ * /topic/detection-results/{cameraId} STOMP destination.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CameraFrameWebSocketHandler extends BinaryWebSocketHandler {
+
+    public static final String CAMERA_ID = "cameraId";
+    public static final String CAMERA_TYPE = "cameraType";
+    public static final String LATITUDE = "latitude";
+    public static final String LONGITUDE = "longitude";
+
+    private final CameraFrameMailbox cameraFrameMailbox;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        log.info("Camera stream connected: {} (session {})", session.getAttributes().get(CAMERA_ID), session.getId());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        ByteBuffer payload = message.getPayload();
+        byte[] frame = new byte[payload.remaining()];
+        payload.get(frame);
+
+        Map<String, Object> attributes = session.getAttributes();
+        DetectionRequest request = new DetectionRequest();
+        request.setImageBytes(frame);
+        request.setCameraId((String) attributes.get(CAMERA_ID));
+        request.setCameraType((String) attributes.get(CAMERA_TYPE));
+        request.setLatitude((Double) attributes.get(LATITUDE));
+        request.setLongitude((Double) attributes.get(LONGITUDE));
+
+        cameraFrameMailbox.offer(request);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        log.info("Camera stream disconnected: {} ({})", session.getAttributes().get(CAMERA_ID), status);
+    }
+}
@@ -5,20 +5,31 @@ import com.facerecognition.dto.PersonRegistrationRequest;
 import com.facerecognition.model.DetectionLog;
 import com.facerecognition.model.FaceData;
 import com.facerecognition.model.Person;
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.recognition.MatScope;
+import com.facerecognition.service.DetectionExecutor;
 import com.facerecognition.service.DetectionService;
+import com.facerecognition.service.FaceGallery;
 import com.facerecognition.service.FaceRecognitionService;
 import com.facerecognition.service.PersonService;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -27,6 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/")
@@ -38,6 +50,14 @@ public class FaceRecognitionController {
     private final PersonService personService;
     private final DetectionService detectionService;
     private final FaceRecognitionService faceRecognitionService; // Added FaceRecognitionService
+    private final FaceGallery faceGallery;
+    private final DetectionExecutor detectionExecutor;
+    
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_REPORT_QUERIES = 10_000;
+    
+    @Value("${face.stream.max.frame.bytes:4194304}")
+    private int maxFrameBytes;
     
     // DTO for the detection response
     @Data
@@ -76,10 +96,132 @@ public class FaceRecognitionController {
         }
     }
     
+    /**
+     * Original bytes of a registered face image by its SHA-256. The content never
+     * changes for a given hash, so clients may cache it indefinitely.
+     */
+    @GetMapping("/faces/images/{hash}")
+    public ResponseEntity<byte[]> getFaceImage(@PathVariable String hash) {
+        return personService.getFaceImage(hash)
+            .map(bytes -> ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(imageMediaType(bytes))
+                .body(bytes))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    // Registered images are stored as uploaded, so the type comes from their magic bytes
+    private static MediaType imageMediaType(byte[] bytes) {
+        if (bytes.length > 3 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8 && (bytes[2] & 0xFF) == 0xFF) {
+            return MediaType.IMAGE_JPEG;
+        }
+        if (bytes.length > 8 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return MediaType.IMAGE_PNG;
+        }
+        if (bytes.length > 2 && bytes[0] == 'B' && bytes[1] == 'M') {
+            return MediaType.parseMediaType("image/bmp");
+        }
+        if (bytes.length > 12 && bytes[8] == 'W' && bytes[9] == 'E' && bytes[10] == 'B' && bytes[11] == 'P') {
+            return MediaType.parseMediaType("image/webp");
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+    
     @PostMapping("/detections/detect")
     public ResponseEntity<?> detectAndMatchFace(@RequestBody DetectionRequest request) {
         log.info("Received face detection request for camera ID: {}", request.getCameraId());
-        detectionService.processFaceDetection(request);
+        return submitDetection(request);
+    }
+    
+    /**
+     * Detection with the frame as the raw request body (image/jpeg, image/png or
+     * application/octet-stream) and camera metadata in X-Camera-* headers. The body
+     * is read once into an array of the declared length, avoiding the Base64 string
+     * and its decoded copy.
+     */
+    @PostMapping(value = "/detections/detect",
+                 consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> detectAndMatchRawFrame(HttpServletRequest httpRequest,
+                                                    @RequestHeader("X-Camera-Id") String cameraId,
+                                                    @RequestHeader(value = "X-Camera-Type", required = false) String cameraType,
+                                                    @RequestHeader(value = "X-Latitude", required = false) Double latitude,
+                                                    @RequestHeader(value = "X-Longitude", required = false) Double longitude) throws IOException {
+        long contentLength = httpRequest.getContentLengthLong();
+        if (contentLength > maxFrameBytes) {
+            return frameTooLarge();
+        }
+
+        byte[] frame;
+        try (InputStream body = httpRequest.getInputStream()) {
+            // Without a Content-Length, read one byte past the limit to tell an oversize body apart
+            frame = contentLength >= 0 ? body.readNBytes((int) contentLength) : body.readNBytes(maxFrameBytes + 1);
+        }
+        if (frame.length > maxFrameBytes) {
+            return frameTooLarge();
+        }
+        if (frame.length == 0) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Empty frame"
+            ));
+        }
+
+        log.info("Received raw face detection frame for camera ID: {} ({} bytes)", cameraId, frame.length);
+        return submitDetection(frameRequest(frame, cameraId, cameraType, latitude, longitude));
+    }
+    
+    /**
+     * Detection with the frame uploaded as the "image" part of a multipart form and
+     * camera metadata as form fields.
+     */
+    @PostMapping(value = "/detections/detect", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> detectAndMatchMultipartFrame(@RequestPart("image") MultipartFile image,
+                                                          @RequestParam("cameraId") String cameraId,
+                                                          @RequestParam(value = "cameraType", required = false) String cameraType,
+                                                          @RequestParam(value = "latitude", required = false) Double latitude,
+                                                          @RequestParam(value = "longitude", required = false) Double longitude) throws IOException {
+        if (image.getSize() > maxFrameBytes) {
+            return frameTooLarge();
+        }
+        if (image.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Empty frame"
+            ));
+        }
+        log.info("Received multipart face detection frame for camera ID: {} ({} bytes)", cameraId, image.getSize());
+        return submitDetection(frameRequest(image.getBytes(), cameraId, cameraType, latitude, longitude));
+    }
+    
+    private ResponseEntity<?> frameTooLarge() {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+            "success", false,
+            "message", "Frame exceeds " + maxFrameBytes + " bytes"
+        ));
+    }
+    
+    private static DetectionRequest frameRequest(byte[] frame, String cameraId, String cameraType,
+                                                 Double latitude, Double longitude) {
+        DetectionRequest request = new DetectionRequest();
+        request.setImageBytes(frame);
+        request.setCameraId(cameraId);
+        request.setCameraType(cameraType);
+        request.setLatitude(latitude);
+        request.setLongitude(longitude);
+        return request;
+    }
+    
+    private ResponseEntity<?> submitDetection(DetectionRequest request) {
+        if (!detectionExecutor.submit(request)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(detectionExecutor.getRetryAfterSeconds()))
+                .body(Map.of(
+                    "success", false,
+                    "message", "Detection queue is full, retry later.",
+                    "cameraId", request.getCameraId(),
+                    "status", "rejected"
+                ));
+        }
         // Return 202 Accepted with proper JSON response
         return ResponseEntity.accepted().body(Map.of(
             "success", true,
@@ -89,10 +231,21 @@ public class FaceRecognitionController {
         ));
     }
     
+    /**
+     * Newest detections first. For the next page pass the detectionTime and id of the
+     * last detection received as beforeTime and beforeId.
+     */
     @GetMapping("/detections/recent")
-    public ResponseEntity<?> getRecentDetections(@RequestParam(defaultValue = "10") int limit) {
+    public ResponseEntity<?> getRecentDetections(@RequestParam(defaultValue = "10") int limit,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+                                                 @RequestParam(required = false) Long beforeId) {
         try {
-            return ResponseEntity.ok(detectionService.getRecentDetections(limit));
+            return ResponseEntity.ok(detectionService.getRecentDetections(pageSize(limit), beforeTime, beforeId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             log.error("Error fetching recent detections", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
@@ -120,9 +273,17 @@ public class FaceRecognitionController {
     }
     
     @GetMapping("/detections/camera/{cameraId}")
-    public ResponseEntity<?> getDetectionsByCamera(@PathVariable String cameraId) {
+    public ResponseEntity<?> getDetectionsByCamera(@PathVariable String cameraId,
+                                                   @RequestParam(defaultValue = "50") int limit,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+                                                   @RequestParam(required = false) Long beforeId) {
         try {
-            return ResponseEntity.ok(detectionService.getDetectionsByCamera(cameraId));
+            return ResponseEntity.ok(detectionService.getDetectionsByCamera(cameraId, pageSize(limit), beforeTime, beforeId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             log.error("Error fetching detections by camera", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
@@ -132,6 +293,10 @@ public class FaceRecognitionController {
         }
     }
     
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+    
     @PostMapping("/face/test-upload")
     public ResponseEntity<?> testImageUpload(@RequestParam("image") MultipartFile imageFile) {
         try {
@@ -197,10 +362,20 @@ public class FaceRecognitionController {
             // Get the first face data
             FaceData faceData = faceDataList.get(0);
             String storedImagePath = faceData.getImagePath();
-            String storedEncoding = faceData.getFaceEncoding();
+            FaceEncoding storedEncoding = faceData.getFaceEncoding();
             
-            // Extract encoding from the same image again
-            String freshEncoding = faceRecognitionService.extractFaceEncoding(storedImagePath);
+            // Extract encoding from the same image again; newer rows only reference it by hash
+            FaceEncoding freshEncoding;
+            if (storedImagePath != null) {
+                freshEncoding = faceRecognitionService.extractFaceEncoding(storedImagePath);
+            } else {
+                byte[] storedImage = personService.getFaceImage(faceData.getImageHash())
+                    .orElseThrow(() -> new IllegalStateException("Face image " + faceData.getImageHash() + " is missing"));
+                try (MatScope scope = new MatScope()) {
+                    freshEncoding = faceRecognitionService.extractFaceEncoding(
+                        scope.add(faceRecognitionService.decodeImage(storedImage)), "face image " + faceData.getImageHash());
+                }
+            }
             
             // Calculate similarity between stored and fresh encoding (should be very high)
             double selfSimilarity = faceRecognitionService.calculateSimilarity(storedEncoding, freshEncoding);
@@ -215,8 +390,9 @@ public class FaceRecognitionController {
             result.put("personName", testPerson.getName());
             result.put("personId", testPerson.getId());
             result.put("storedImagePath", storedImagePath);
-            result.put("storedEncodingLength", storedEncoding != null ? storedEncoding.length() : 0);
-            result.put("freshEncodingLength", freshEncoding != null ? freshEncoding.length() : 0);
+            result.put("storedImageHash", faceData.getImageHash());
+            result.put("storedEncodingLength", storedEncoding != null ? storedEncoding.dimension() : 0);
+            result.put("freshEncodingLength", freshEncoding != null ? freshEncoding.dimension() : 0);
             result.put("selfSimilarity", selfSimilarity);
             result.put("bestMatchConfidence", bestMatchConfidence);
             result.put("calculationDetails", calculationDetails);
@@ -231,4 +407,27 @@ public class FaceRecognitionController {
             ));
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Recall/latency report comparing the HNSW index against an exact gallery scan
+     */
+    @GetMapping("/face/index-report")
+    public ResponseEntity<?> getIndexReport(@RequestParam(defaultValue = "200") int queries,
+                                            @RequestParam(defaultValue = "64") int efSearch) {
+        if (queries < 1 || queries > MAX_REPORT_QUERIES || efSearch < 1) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "queries must be between 1 and " + MAX_REPORT_QUERIES + " and efSearch at least 1"
+            ));
+        }
+        try {
+            return ResponseEntity.ok(faceGallery.indexReport(queries, efSearch, System.nanoTime()));
+        } catch (Exception e) {
+            log.error("Error building index report", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Error: " + e.getMessage()
+            ));
+        }
+    }
+}
@@ -1,6 +1,17 @@
 package com.facerecognition.controller;
 
+import com.facerecognition.service.CameraFrameMailbox;
+import com.facerecognition.service.DetectionExecutor;
+import com.facerecognition.service.DetectionLogWriter;
+import com.facerecognition.service.DetectionPipeline;
+import com.facerecognition.service.FaceGallery;
 import com.facerecognition.service.FaceRecognitionService;
+import com.facerecognition.service.FaceTrackingService;
+import com.facerecognition.service.FrameDeduplicationService;
+import com.facerecognition.service.GalleryMatchBatcher;
+import com.facerecognition.service.RecentDetectionsCache;
+import com.facerecognition.service.RecognitionWarmup;
+import com.facerecognition.service.TransactionRunner;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +29,17 @@ import java.util.Map;
 public class HealthController {
     
     private final FaceRecognitionService faceRecognitionService;
+    private final CameraFrameMailbox cameraFrameMailbox;
+    private final DetectionExecutor detectionExecutor;
+    private final DetectionPipeline detectionPipeline;
+    private final FaceTrackingService faceTrackingService;
+    private final FrameDeduplicationService frameDeduplicationService;
+    private final GalleryMatchBatcher galleryMatchBatcher;
+    private final FaceGallery faceGallery;
+    private final TransactionRunner transactionRunner;
+    private final DetectionLogWriter detectionLogWriter;
+    private final RecentDetectionsCache recentDetectionsCache;
+    private final RecognitionWarmup recognitionWarmup;
     
     @GetMapping("/face-recognition")
     public ResponseEntity<Map<String, Object>> checkFaceRecognitionHealth() {
@@ -60,13 +82,36 @@ public class HealthController {
             "status", faceRecognitionService.getInitializationStatus()
         ));
         
+        // Not ready for cameras until the warm-up has reached steady-state latency
+        boolean warm = recognitionWarmup.isReady();
+        health.put("warmup", recognitionWarmup.getStats());
+        
         // Overall system health
-        boolean overallHealthy = faceRecognitionHealthy;
-        health.put("overall", overallHealthy ? "healthy" : "unhealthy");
+        boolean overallHealthy = faceRecognitionHealthy && warm;
+        health.put("overall", !faceRecognitionHealthy ? "unhealthy"
+            : warm ? "healthy"
+            : recognitionWarmup.getState() == RecognitionWarmup.State.FAILED ? "warmup failed" : "warming");
         health.put("timestamp", System.currentTimeMillis());
         
         return overallHealthy ? 
             ResponseEntity.ok(health) : 
             ResponseEntity.status(503).body(health);
     }
+    
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> getPipelineStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("detection", detectionExecutor.getStats());
+        stats.put("stages", detectionPipeline.getStats());
+        stats.put("cameraStream", cameraFrameMailbox.getStats());
+        stats.put("tracking", faceTrackingService.getStats());
+        stats.put("deduplication", frameDeduplicationService.getStats());
+        stats.put("matchBatching", galleryMatchBatcher.getStats());
+        stats.put("gallery", faceGallery.getStats());
+        stats.put("transactions", transactionRunner.getStats());
+        stats.put("detectionLogWriter", detectionLogWriter.getStats());
+        stats.put("recentDetections", recentDetectionsCache.getStats());
+        stats.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(stats);
+    }
 }
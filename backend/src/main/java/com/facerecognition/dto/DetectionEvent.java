@@ -0,0 +1,33 @@
+package com.facerecognition.dto;
+
+import com.facerecognition.model.DetectionFaceHit;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Detection result pushed to camera clients over WebSocket. Field names match
+ * the detection log so existing clients read it unchanged; person is the
+ * primary recognised person, faces lists every face found in the frame.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DetectionEvent {
+    private Long id;
+    private String cameraId;
+    private String cameraType;
+    private LocalDateTime detectionTime;
+    private Double confidenceScore;
+    private PersonSummaryDTO person;
+    private List<DetectionFaceHit> faces;
+    private String detectionImagePath;
+    private Double latitude;
+    private Double longitude;
+    private String locationAddress;
+}
@@ -1,5 +1,6 @@
 package com.facerecognition.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
@@ -11,4 +12,8 @@ public class DetectionRequest {
     private Double longitude;
     private String cameraId;
     private String cameraType;
+
+    // Raw encoded frame for binary ingestion paths; takes precedence over base64Image when set
+    @JsonIgnore
+    private byte[] imageBytes;
 }
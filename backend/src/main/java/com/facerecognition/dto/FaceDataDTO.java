@@ -12,6 +12,8 @@ import java.time.LocalDateTime;
 public class FaceDataDTO {
     private Long id;
     private String imagePath;
+    // SHA-256 of the image; the bytes are served by /faces/images/{imageHash}
+    private String imageHash;
     private Double confidenceScore;
     private LocalDateTime createdDate;
     private Boolean isActive;
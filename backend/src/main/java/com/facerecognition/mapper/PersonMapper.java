@@ -1,5 +1,6 @@
 package com.facerecognition.mapper;
 
+import com.facerecognition.dto.DetectionEvent;
 import com.facerecognition.dto.DetectionLogDTO;
 import com.facerecognition.dto.FaceDataDTO;
 import com.facerecognition.dto.PersonDTO;
@@ -70,6 +71,7 @@ public class PersonMapper {
         FaceDataDTO dto = new FaceDataDTO();
         dto.setId(faceData.getId());
         dto.setImagePath(faceData.getImagePath());
+        dto.setImageHash(faceData.getImageHash());
         dto.setConfidenceScore(faceData.getConfidenceScore());
         dto.setCreatedDate(faceData.getCreatedDate());
         dto.setIsActive(faceData.getIsActive());
@@ -99,6 +101,27 @@ public class PersonMapper {
         return dto;
     }
 
+    public DetectionEvent toDetectionEvent(DetectionLog detectionLog) {
+        if (detectionLog == null) {
+            return null;
+        }
+        
+        DetectionEvent event = new DetectionEvent();
+        event.setId(detectionLog.getId());
+        event.setCameraId(detectionLog.getCameraId());
+        event.setCameraType(detectionLog.getCameraType());
+        event.setDetectionTime(detectionLog.getDetectionTime());
+        event.setConfidenceScore(detectionLog.getConfidenceScore());
+        event.setPerson(toPersonSummaryDTO(detectionLog.getPerson()));
+        event.setFaces(detectionLog.getFaceHits());
+        event.setDetectionImagePath(detectionLog.getDetectionImagePath());
+        event.setLatitude(detectionLog.getLatitude());
+        event.setLongitude(detectionLog.getLongitude());
+        event.setLocationAddress(detectionLog.getLocationAddress());
+        
+        return event;
+    }
+
     public List<PersonSummaryDTO> toPersonSummaryDTOList(List<Person> persons) {
         if (persons == null) {
             return null;
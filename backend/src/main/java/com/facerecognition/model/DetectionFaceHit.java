@@ -0,0 +1,44 @@
+package com.facerecognition.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One face found in a detection frame, with its bounding box in frame coordinates.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetectionFaceHit {
+
+    @Column(name = "person_id")
+    private Long personId;
+
+    @Column(name = "person_name")
+    private String personName;
+
+    @Column(name = "face_data_id")
+    private Long faceDataId;
+
+    @Column(name = "confidence_score")
+    private Double confidenceScore;
+
+    @Column(name = "matched")
+    private Boolean matched;
+
+    @Column(name = "box_x")
+    private Integer x;
+
+    @Column(name = "box_y")
+    private Integer y;
+
+    @Column(name = "box_width")
+    private Integer width;
+
+    @Column(name = "box_height")
+    private Integer height;
+}
@@ -1,27 +1,36 @@
 package com.facerecognition.model;
 
-import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "detection_logs")
+@Table(name = "detection_logs", indexes = {
+    // Newest-first keyset pages, overall and per camera
+    @Index(name = "idx_detection_logs_time_id", columnList = "detection_time DESC, id DESC"),
+    @Index(name = "idx_detection_logs_camera_time_id", columnList = "camera_id, detection_time DESC, id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class DetectionLog {
     
+    // Pooled sequence ids are assigned without a round-trip per row, which lets inserts be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detection_log_seq")
+    @SequenceGenerator(name = "detection_log_seq", sequenceName = "detection_log_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "person_id")
-    @JsonBackReference("person-detectionlog")
+    @JsonIgnore
     private Person person;
     
     @Column(name = "detection_image_path")
@@ -57,8 +66,17 @@ public class DetectionLog {
     @Column(name = "sms_sent")
     private Boolean smsSent = false;
     
+    // Loaded for up to a page of logs per query instead of one query per log
+    @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 100)
+    @CollectionTable(name = "detection_face_hits", joinColumns = @JoinColumn(name = "detection_log_id"))
+    private List<DetectionFaceHit> faceHits = new ArrayList<>();
+    
     @PrePersist
     protected void onCreate() {
-        detectionTime = LocalDateTime.now();
+        // Write-behind inserts happen after the frame was seen; keep the capture time when set
+        if (detectionTime == null) {
+            detectionTime = LocalDateTime.now();
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.facerecognition.model;
 
-import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.facerecognition.recognition.FaceEncoding;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -21,19 +22,27 @@ public class FaceData {
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "person_id", nullable = false)
-    @JsonBackReference("person-facedata")
+    @JsonIgnore
     private Person person;
     
+    // Only set on rows registered before images moved to FaceImageStore
     @Column(name = "image_path", nullable = true)
     private String imagePath;
     
-    @Lob
-    @Column(name = "base64_image_data", columnDefinition = "LONGTEXT")
-    private String base64ImageData;
+    // SHA-256 of the original image bytes in FaceImageStore
+    @Column(name = "image_sha256", length = 64)
+    private String imageHash;
     
+    @Convert(converter = FaceEncodingConverter.class)
+    @Column(name = "face_encoding_vector", length = FaceEncoding.BYTES)
+    @JsonIgnore
+    private FaceEncoding faceEncoding;
+
+    // Base64 string encoding from before the switch to float vectors; only read by FaceEncodingMigration
     @Lob
     @Column(name = "face_encoding", columnDefinition = "LONGTEXT")
-    private String faceEncoding;
+    @JsonIgnore
+    private String legacyFaceEncoding;
     
     @Column(name = "confidence_score")
     private Double confidenceScore;
@@ -0,0 +1,19 @@
+package com.facerecognition.model;
+
+import com.facerecognition.recognition.FaceEncoding;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class FaceEncodingConverter implements AttributeConverter<FaceEncoding, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(FaceEncoding encoding) {
+        return encoding != null ? encoding.toBytes() : null;
+    }
+
+    @Override
+    public FaceEncoding convertToEntityAttribute(byte[] bytes) {
+        return FaceEncoding.fromBytes(bytes);
+    }
+}
@@ -1,6 +1,6 @@
 package com.facerecognition.model;
 
-import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -46,12 +46,13 @@ public class Person {
     @Column(name = "is_active")
     private boolean isActive = true;
     
+    // Not serialized: lazy, and would be loaded outside the session now that open-in-view is off
     @OneToMany(mappedBy = "person", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonManagedReference("person-facedata")
+    @JsonIgnore
     private List<FaceData> faceDataList;
 
     @OneToMany(mappedBy = "person", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonManagedReference("person-detectionlog")
+    @JsonIgnore
     private List<DetectionLog> detectionLogs;
     
     @PrePersist
@@ -0,0 +1,65 @@
+package com.facerecognition.pipeline;
+
+import com.facerecognition.dto.DetectionRequest;
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.model.Person;
+import com.facerecognition.recognition.FrameAnalysis;
+import com.facerecognition.recognition.MatScope;
+import com.facerecognition.recognition.MatchResult;
+import lombok.Getter;
+import lombok.Setter;
+import org.opencv.core.Mat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * State of one frame as it moves through the detection pipeline. Each stage
+ * reads what the previous stages produced and fills in its own part. Stages
+ * work on a frame one after another, except notify and publish, which only
+ * read it and run side by side after persist.
+ */
+@Getter
+@Setter
+public class FrameContext {
+
+    private final DetectionRequest request;
+    private final long receivedNanos = System.nanoTime();
+    // Completed once the frame has left the pipeline, whether published, skipped or failed
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private byte[] imageBytes;
+    private long frameHash;
+    private Mat image;
+    private double decodeMillis;
+    private FrameAnalysis analysis;
+    private List<MatchResult> faceResults;
+    private Map<Long, Person> matchedPersons;
+    private DetectionLog savedLog;
+
+    public FrameContext(DetectionRequest request) {
+        this.request = request;
+    }
+
+    public String getCameraId() {
+        return request.getCameraId();
+    }
+
+    public String getImageLabel() {
+        return "camera " + request.getCameraId();
+    }
+
+    /**
+     * Free the decoded frame's native buffer once detection and encoding are done with it
+     */
+    public void releaseImage() {
+        MatScope.release(image);
+        image = null;
+    }
+
+    public void complete() {
+        releaseImage();
+        completion.complete(null);
+    }
+}
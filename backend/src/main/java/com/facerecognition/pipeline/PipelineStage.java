@@ -0,0 +1,179 @@
+package com.facerecognition.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.BiConsumer;
+
+/**
+ * One step of a pipeline: a bounded queue drained by a fixed number of workers.
+ *
+ * Upstream stages hand items over with {@link #put}, which blocks while the
+ * queue is full, so a slow stage pushes back on the stages in front of it
+ * instead of letting work pile up. Items enter the pipeline with the
+ * non-blocking {@link #offer} or {@link #offerDroppingOldest}.
+ *
+ * Each stage keeps its own service-time, queue-wait and occupancy figures so
+ * the bottleneck stage can be read off directly.
+ */
+@Slf4j
+public class PipelineStage<T> {
+
+    /**
+     * Work done by the stage for one item; a thrown exception is passed to the stage's error handler
+     */
+    @FunctionalInterface
+    public interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+
+    private record Entry<T>(T item, long enqueuedNanos) {
+    }
+
+    private final String name;
+    private final int workerCount;
+    private final int capacity;
+    private final BlockingQueue<Entry<T>> queue;
+    private final ThreadFactory threadFactory;
+    private final Handler<T> handler;
+    private final BiConsumer<T, Exception> errorHandler;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong serviceNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final LongAccumulator maxServiceNanos = new LongAccumulator(Math::max, 0);
+
+    private volatile boolean running;
+
+    public PipelineStage(String name, int workerCount, int capacity, ThreadFactory threadFactory,
+                         Handler<T> handler, BiConsumer<T, Exception> errorHandler) {
+        this.name = name;
+        this.workerCount = workerCount;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.threadFactory = threadFactory;
+        this.handler = handler;
+        this.errorHandler = errorHandler;
+    }
+
+    public synchronized void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threadFactory.newThread(this::work);
+            worker.setName("pipeline-" + name + "-" + (i + 1));
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Enqueue without waiting; false if the queue is full
+     */
+    public boolean offer(T item) {
+        return queue.offer(new Entry<>(item, System.nanoTime()));
+    }
+
+    /**
+     * Enqueue, discarding the oldest queued items while the queue is full
+     *
+     * @return the discarded items, so the caller can complete them
+     */
+    public List<T> offerDroppingOldest(T item) {
+        List<T> discarded = new ArrayList<>(1);
+        Entry<T> entry = new Entry<>(item, System.nanoTime());
+        while (!queue.offer(entry)) {
+            Entry<T> oldest = queue.poll();
+            if (oldest != null) {
+                dropped.incrementAndGet();
+                discarded.add(oldest.item());
+            }
+        }
+        return discarded;
+    }
+
+    /**
+     * Enqueue, waiting for space; used between stages for back-pressure
+     */
+    public void put(T item) throws InterruptedException {
+        queue.put(new Entry<>(item, System.nanoTime()));
+    }
+
+    private void work() {
+        while (running) {
+            Entry<T> entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            long start = System.nanoTime();
+            waitNanos.addAndGet(start - entry.enqueuedNanos());
+            busy.incrementAndGet();
+            try {
+                handler.handle(entry.item());
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                try {
+                    errorHandler.accept(entry.item(), e);
+                } catch (Exception nested) {
+                    log.error("Error handler of pipeline stage {} failed", name, nested);
+                }
+            } finally {
+                busy.decrementAndGet();
+                long elapsed = System.nanoTime() - start;
+                serviceNanos.addAndGet(elapsed);
+                maxServiceNanos.accumulate(elapsed);
+                processed.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long count = processed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workerCount);
+        stats.put("busyWorkers", busy.get());
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", capacity);
+        stats.put("processed", count);
+        stats.put("failed", failed.get());
+        stats.put("dropped", dropped.get());
+        stats.put("avgServiceMillis", count > 0 ? serviceNanos.get() / 1_000_000.0 / count : 0.0);
+        stats.put("maxServiceMillis", maxServiceNanos.get() / 1_000_000.0);
+        stats.put("avgQueueWaitMillis", count > 0 ? waitNanos.get() / 1_000_000.0 / count : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,65 @@
+package com.facerecognition.recognition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.objdetect.CascadeClassifier;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Fixed set of CascadeClassifier instances handed out one per caller.
+ *
+ * OpenCV's classifier keeps per-call scratch state, so concurrent detectMultiScale
+ * calls on one instance are unsafe. Every instance is loaded from the same
+ * extracted cascade file; callers borrow one for the duration of a detection and
+ * block if all of them are in use.
+ */
+@Slf4j
+public class CascadeDetectorPool {
+
+    private final BlockingQueue<CascadeClassifier> available;
+    private final int size;
+
+    public CascadeDetectorPool(String cascadePath, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Detector pool size must be at least 1");
+        }
+        this.size = size;
+        this.available = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            CascadeClassifier classifier = new CascadeClassifier(cascadePath);
+            if (classifier.empty()) {
+                throw new IllegalStateException("Failed to load cascade classifier from: " + cascadePath);
+            }
+            available.add(classifier);
+        }
+        log.info("Created pool of {} cascade classifiers from {}", size, cascadePath);
+    }
+
+    /**
+     * Run work with an exclusively borrowed classifier.
+     */
+    public <T> T withDetector(Function<CascadeClassifier, T> work) {
+        CascadeClassifier classifier;
+        try {
+            classifier = available.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a face detector", e);
+        }
+        try {
+            return work.apply(classifier);
+        } finally {
+            available.add(classifier);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int available() {
+        return available.size();
+    }
+}
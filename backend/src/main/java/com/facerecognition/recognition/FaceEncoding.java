@@ -0,0 +1,154 @@
+package com.facerecognition.recognition;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Fixed-length numeric face template.
+ *
+ * The encoding is a 16x16 grayscale thumbnail of the face crop, mean-centred and
+ * L2-normalised, so the similarity of two encodings is simply their dot product
+ * (cosine similarity). Stored as little-endian float32 bytes.
+ */
+public final class FaceEncoding {
+
+    public static final int GRID_SIZE = 16;
+    public static final int DIMENSION = GRID_SIZE * GRID_SIZE;
+    public static final int BYTES = DIMENSION * Float.BYTES;
+
+    // Size of the BGR face crop produced by the old matToString() encoder
+    private static final int LEGACY_CROP_SIZE = 128;
+
+    private final float[] values;
+
+    private FaceEncoding(float[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Build an encoding from raw grayscale intensities; the values are normalised in place.
+     */
+    public static FaceEncoding fromIntensities(float[] intensities) {
+        if (intensities.length != DIMENSION) {
+            throw new IllegalArgumentException("Expected " + DIMENSION + " values but got " + intensities.length);
+        }
+        normalize(intensities);
+        return new FaceEncoding(intensities);
+    }
+
+    /**
+     * Wrap an already normalised vector, e.g. one read back from storage.
+     */
+    public static FaceEncoding wrap(float[] normalizedValues) {
+        if (normalizedValues.length != DIMENSION) {
+            throw new IllegalArgumentException("Expected " + DIMENSION + " values but got " + normalizedValues.length);
+        }
+        return new FaceEncoding(normalizedValues);
+    }
+
+    public static FaceEncoding fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Expected " + BYTES + " encoding bytes but got " + bytes.length);
+        }
+        float[] values = new float[DIMENSION];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+        return new FaceEncoding(values);
+    }
+
+    /**
+     * Migrate an encoding produced by the old string encoder (Base64 of a 128x128 BGR crop).
+     * Mirrors the current pipeline: BGR to gray, then area-average down to the 16x16 grid.
+     */
+    public static FaceEncoding fromLegacyBase64(String legacyEncoding) {
+        if (legacyEncoding == null || legacyEncoding.isEmpty()) {
+            return null;
+        }
+        byte[] bgr = Base64.getDecoder().decode(legacyEncoding);
+        if (bgr.length != LEGACY_CROP_SIZE * LEGACY_CROP_SIZE * 3) {
+            throw new IllegalArgumentException("Unexpected legacy encoding size: " + bgr.length + " bytes");
+        }
+
+        int block = LEGACY_CROP_SIZE / GRID_SIZE;
+        float[] intensities = new float[DIMENSION];
+        for (int y = 0; y < LEGACY_CROP_SIZE; y++) {
+            for (int x = 0; x < LEGACY_CROP_SIZE; x++) {
+                int p = (y * LEGACY_CROP_SIZE + x) * 3;
+                float gray = 0.114f * (bgr[p] & 0xFF) + 0.587f * (bgr[p + 1] & 0xFF) + 0.299f * (bgr[p + 2] & 0xFF);
+                intensities[(y / block) * GRID_SIZE + (x / block)] += gray;
+            }
+        }
+        float cellArea = block * block;
+        for (int i = 0; i < DIMENSION; i++) {
+            intensities[i] /= cellArea;
+        }
+        return fromIntensities(intensities);
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(values);
+        return buffer.array();
+    }
+
+    /**
+     * Cosine similarity clamped to [0, 1], comparable with face.recognition.threshold.
+     */
+    public double similarity(FaceEncoding other) {
+        if (other == null) {
+            return 0.0;
+        }
+        return Math.max(0.0f, VectorMath.dot(values, other.values));
+    }
+
+    public float[] values() {
+        return values;
+    }
+
+    public int dimension() {
+        return values.length;
+    }
+
+    private static void normalize(float[] v) {
+        float mean = 0f;
+        for (float f : v) {
+            mean += f;
+        }
+        mean /= v.length;
+
+        float norm = 0f;
+        for (int i = 0; i < v.length; i++) {
+            v[i] -= mean;
+            norm += v[i] * v[i];
+        }
+        norm = (float) Math.sqrt(norm);
+        if (norm == 0f) {
+            // Flat crop carries no information; leave it as the zero vector
+            return;
+        }
+        for (int i = 0; i < v.length; i++) {
+            v[i] /= norm;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FaceEncoding that)) return false;
+        return Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return "FaceEncoding[dimension=" + values.length + "]";
+    }
+}
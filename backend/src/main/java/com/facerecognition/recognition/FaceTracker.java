@@ -0,0 +1,169 @@
+package com.facerecognition.recognition;
+
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Associates the faces of consecutive frames from one camera with tracks, by
+ * IoU with a centroid-distance fallback, and remembers the last recognition
+ * result of each track so stationary subjects are not re-recognised every frame.
+ */
+public class FaceTracker {
+
+    private final double iouThreshold;
+    private final int reverifyFrames;
+    private final long reverifyMillis;
+    private final long maxIdleMillis;
+
+    private final List<Track> tracks = new ArrayList<>();
+    private long nextTrackId = 1;
+    private long lastAssignedMillis = System.currentTimeMillis();
+
+    public FaceTracker(double iouThreshold, int reverifyFrames, long reverifyMillis, long maxIdleMillis) {
+        this.iouThreshold = iouThreshold;
+        this.reverifyFrames = reverifyFrames;
+        this.reverifyMillis = reverifyMillis;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * Assign each detected face to a track, opening tracks for new faces and
+     * dropping tracks that have not been seen for a while. The result is in the
+     * same order as the faces.
+     */
+    public synchronized List<Assignment> assign(List<Rect> faces, long nowMillis) {
+        tracks.removeIf(track -> nowMillis - track.lastSeenMillis > maxIdleMillis);
+        lastAssignedMillis = nowMillis;
+
+        List<Track> unclaimed = new ArrayList<>(tracks);
+        List<Assignment> assignments = new ArrayList<>(faces.size());
+        for (Rect face : faces) {
+            Track track = closestTrack(face, unclaimed);
+            if (track == null) {
+                track = new Track(nextTrackId++);
+                tracks.add(track);
+            } else {
+                unclaimed.remove(track);
+                track.framesSinceVerified++;
+            }
+            track.box = face;
+            track.lastSeenMillis = nowMillis;
+
+            boolean needsRecognition = track.result == null
+                || track.framesSinceVerified >= reverifyFrames
+                || nowMillis - track.lastVerifiedMillis >= reverifyMillis;
+            assignments.add(new Assignment(track, needsRecognition, track.result));
+        }
+        return assignments;
+    }
+
+    /**
+     * Store the outcome of a full recognition for a track.
+     */
+    public synchronized void recordRecognition(Track track, MatchResult result, long nowMillis) {
+        track.result = result;
+        track.lastVerifiedMillis = nowMillis;
+        track.framesSinceVerified = 0;
+    }
+
+    /**
+     * True once no faces have been assigned for longer than every track survives,
+     * so the tracker holds nothing worth keeping.
+     */
+    public synchronized boolean isIdle(long nowMillis) {
+        return nowMillis - lastAssignedMillis > maxIdleMillis;
+    }
+
+    public synchronized int activeTracks() {
+        return tracks.size();
+    }
+
+    private Track closestTrack(Rect face, List<Track> candidates) {
+        Track best = null;
+        double bestIou = iouThreshold;
+        for (Track track : candidates) {
+            double iou = iou(face, track.box);
+            if (iou >= bestIou) {
+                bestIou = iou;
+                best = track;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+
+        // Fast movers can drop below the IoU threshold; accept a nearby centroid instead
+        double bestDistance = Double.MAX_VALUE;
+        for (Track track : candidates) {
+            double distance = centroidDistance(face, track.box);
+            double limit = 0.5 * Math.max(track.box.width, track.box.height);
+            if (distance <= limit && distance < bestDistance) {
+                bestDistance = distance;
+                best = track;
+            }
+        }
+        return best;
+    }
+
+    static double iou(Rect a, Rect b) {
+        int x1 = Math.max(a.x, b.x);
+        int y1 = Math.max(a.y, b.y);
+        int x2 = Math.min(a.x + a.width, b.x + b.width);
+        int y2 = Math.min(a.y + a.height, b.y + b.height);
+        if (x2 <= x1 || y2 <= y1) {
+            return 0.0;
+        }
+        double intersection = (double) (x2 - x1) * (y2 - y1);
+        return intersection / (a.area() + b.area() - intersection);
+    }
+
+    private static double centroidDistance(Rect a, Rect b) {
+        double dx = (a.x + a.width / 2.0) - (b.x + b.width / 2.0);
+        double dy = (a.y + a.height / 2.0) - (b.y + b.height / 2.0);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public static final class Track {
+        private final long id;
+        private Rect box;
+        private long lastSeenMillis;
+        private long lastVerifiedMillis;
+        private int framesSinceVerified;
+        private MatchResult result;
+
+        private Track(long id) {
+            this.id = id;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    public static final class Assignment {
+        private final Track track;
+        private final boolean needsRecognition;
+        private final MatchResult cachedResult;
+
+        private Assignment(Track track, boolean needsRecognition, MatchResult cachedResult) {
+            this.track = track;
+            this.needsRecognition = needsRecognition;
+            this.cachedResult = cachedResult;
+        }
+
+        public Track getTrack() {
+            return track;
+        }
+
+        public boolean needsRecognition() {
+            return needsRecognition;
+        }
+
+        public MatchResult getCachedResult() {
+            return cachedResult;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.facerecognition.recognition;
+
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-frame recognition state carried between the detect, encode and match
+ * steps: the detected faces, their track assignments (when the camera is
+ * tracked) and the encodings of the faces that need recognition.
+ */
+public class FrameAnalysis {
+
+    private final List<Rect> faces;
+    private final FaceTracker tracker;
+    private final List<FaceTracker.Assignment> assignments;
+    private final long timestampMillis;
+    private final double decodeMillis;
+    private final double detectMillis;
+    private final FaceEncoding[] encodings;
+    private final double[] encodeMillis;
+
+    public FrameAnalysis(List<Rect> faces, FaceTracker tracker, List<FaceTracker.Assignment> assignments,
+                         long timestampMillis, double decodeMillis, double detectMillis) {
+        this.faces = faces;
+        this.tracker = tracker;
+        this.assignments = assignments;
+        this.timestampMillis = timestampMillis;
+        this.decodeMillis = decodeMillis;
+        this.detectMillis = detectMillis;
+        this.encodings = new FaceEncoding[faces.size()];
+        this.encodeMillis = new double[faces.size()];
+    }
+
+    public List<Rect> getFaces() {
+        return faces;
+    }
+
+    public int faceCount() {
+        return faces.size();
+    }
+
+    public boolean isTracked() {
+        return tracker != null;
+    }
+
+    public FaceTracker getTracker() {
+        return tracker;
+    }
+
+    public FaceTracker.Assignment assignment(int face) {
+        return assignments.get(face);
+    }
+
+    /**
+     * False for faces that continue a track and can reuse its last result
+     */
+    public boolean needsRecognition(int face) {
+        return tracker == null || assignments.get(face).needsRecognition();
+    }
+
+    /**
+     * Indexes of the faces that must be encoded and matched
+     */
+    public List<Integer> facesToRecognize() {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < faces.size(); i++) {
+            if (needsRecognition(i)) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public double getDecodeMillis() {
+        return decodeMillis;
+    }
+
+    public double getDetectMillis() {
+        return detectMillis;
+    }
+
+    public FaceEncoding encoding(int face) {
+        return encodings[face];
+    }
+
+    public double encodeMillis(int face) {
+        return encodeMillis[face];
+    }
+
+    public void setEncoding(int face, FaceEncoding encoding, double millis) {
+        encodings[face] = encoding;
+        encodeMillis[face] = millis;
+    }
+}
@@ -0,0 +1,13 @@
+package com.facerecognition.recognition;
+
+import lombok.Value;
+
+/**
+ * The columns of an active face data row the gallery needs, read without the entity.
+ */
+@Value
+public class GalleryEntry {
+    long faceDataId;
+    long personId;
+    FaceEncoding encoding;
+}
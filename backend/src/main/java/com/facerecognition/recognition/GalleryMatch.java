@@ -0,0 +1,13 @@
+package com.facerecognition.recognition;
+
+import lombok.Value;
+
+/**
+ * Best gallery entry for a query encoding.
+ */
+@Value
+public class GalleryMatch {
+    long faceDataId;
+    long personId;
+    double score;
+}
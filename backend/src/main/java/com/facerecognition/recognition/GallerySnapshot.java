@@ -0,0 +1,126 @@
+package com.facerecognition.recognition;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary copy of the face gallery, written and read through a memory-mapped file.
+ *
+ * Layout, little-endian:
+ * <pre>
+ *   int   magic "FGS1"
+ *   int   format version
+ *   int   dimension
+ *   int   count
+ *   long  highest face data id in the snapshot
+ *   long  creation time, epoch millis
+ *   long  face data ids[count]
+ *   long  person ids[count]
+ *   float vectors[count * dimension]
+ *   long  CRC32C of everything above
+ * </pre>
+ * A snapshot whose magic, version, dimension, length or checksum does not match
+ * is rejected as a whole.
+ */
+public record GallerySnapshot(long maxFaceDataId, long createdMillis, int count,
+                              long[] faceDataIds, long[] personIds, float[] vectors) {
+
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x46475331;
+    private static final int HEADER_BYTES = 32;
+    private static final int CHECKSUM_BYTES = 8;
+
+    /**
+     * Write the first count entries of the given arrays to a temporary file next to
+     * path and move it into place, so a crash mid-write leaves the previous snapshot.
+     */
+    public static void write(Path path, int dimension, int count, long[] faceDataIds, long[] personIds,
+                             float[] vectors, long maxFaceDataId) throws IOException {
+        long bodyBytes = HEADER_BYTES + count * 16L + (long) count * dimension * Float.BYTES;
+        long totalBytes = bodyBytes + CHECKSUM_BYTES;
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IOException("Gallery of " + count + " encodings is too large for a single snapshot file");
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, totalBytes);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(dimension).putInt(count)
+                      .putLong(maxFaceDataId).putLong(System.currentTimeMillis());
+                buffer.asLongBuffer().put(faceDataIds, 0, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                buffer.asLongBuffer().put(personIds, 0, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                buffer.asFloatBuffer().put(vectors, 0, count * dimension);
+                buffer.position(buffer.position() + count * dimension * Float.BYTES);
+                buffer.putLong(checksum(buffer, (int) bodyBytes));
+                buffer.force();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Map a snapshot file and copy it into heap arrays in bulk
+     *
+     * @throws IOException if the file cannot be read or fails validation
+     */
+    public static GallerySnapshot read(Path path, int dimension) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + CHECKSUM_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot has unexpected size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            int storedDimension = buffer.getInt();
+            int count = buffer.getInt();
+            if (magic != MAGIC || version != FORMAT_VERSION) {
+                throw new IOException("Not a version " + FORMAT_VERSION + " gallery snapshot");
+            }
+            if (storedDimension != dimension) {
+                throw new IOException("Snapshot dimension " + storedDimension + " does not match " + dimension);
+            }
+            long bodyBytes = HEADER_BYTES + count * 16L + (long) count * dimension * Float.BYTES;
+            if (count < 0 || bodyBytes + CHECKSUM_BYTES != size) {
+                throw new IOException("Snapshot length does not match its count of " + count);
+            }
+            long expectedChecksum = buffer.getLong((int) bodyBytes);
+            if (checksum(buffer, (int) bodyBytes) != expectedChecksum) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            long maxFaceDataId = buffer.getLong();
+            long createdMillis = buffer.getLong();
+
+            long[] faceDataIds = new long[count];
+            long[] personIds = new long[count];
+            float[] vectors = new float[count * dimension];
+            buffer.asLongBuffer().get(faceDataIds);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.asLongBuffer().get(personIds);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            buffer.asFloatBuffer().get(vectors);
+            return new GallerySnapshot(maxFaceDataId, createdMillis, count, faceDataIds, personIds, vectors);
+        }
+    }
+
+    private static long checksum(MappedByteBuffer buffer, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, length));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,306 @@
+package com.facerecognition.recognition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Hierarchical Navigable Small World graph over unit-length face encodings
+ * (Malkov and Yashunin), using 1 - dot product as the distance.
+ *
+ * Nodes are append-only and identified by the order they were inserted in;
+ * removal is a soft delete that keeps the node routable but never returns it.
+ * Not thread safe: callers serialise inserts and deletes against searches.
+ */
+public class HnswIndex {
+
+    private final int dimension;
+    private final int m;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private float[] vectors;
+    private long[] keys;
+    private int[] levels;
+    private int[][][] links; // links[node][level][0] = neighbour count, followed by neighbour ids
+    private boolean[] deleted;
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<VisitedSet> visited = ThreadLocal.withInitial(VisitedSet::new);
+
+    public HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW M must be at least 2");
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.maxConnections0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+        int capacity = 256;
+        this.vectors = new float[capacity * dimension];
+        this.keys = new long[capacity];
+        this.levels = new int[capacity];
+        this.links = new int[capacity][][];
+        this.deleted = new boolean[capacity];
+    }
+
+    /**
+     * Insert a vector and return its node id. The key is an opaque caller id
+     * (the FaceData id) returned with search results.
+     */
+    public int insert(long key, float[] vector, int offset) {
+        ensureCapacity(size + 1);
+        int node = size++;
+        System.arraycopy(vector, offset, vectors, node * dimension, dimension);
+        keys[node] = key;
+
+        int level = (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        levels[node] = level;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxConnections(l) + 1];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vectors, node * dimension, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> found = searchLayer(vectors, node * dimension, current, efConstruction, l);
+            List<Candidate> selected = closest(found, m);
+            for (Candidate neighbour : selected) {
+                addLink(node, neighbour.node, l);
+                addLink(neighbour.node, node, l);
+            }
+            current = found.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    public void markDeleted(int node) {
+        if (node >= 0 && node < size && !deleted[node]) {
+            deleted[node] = true;
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Approximate k nearest live nodes to the query, best first.
+     */
+    public List<Candidate> search(float[] query, int k, int efSearch) {
+        if (entryPoint < 0 || size == deletedCount) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(query, 0, current, l);
+        }
+        List<Candidate> found = searchLayer(query, 0, current, Math.max(efSearch, k), 0);
+        List<Candidate> results = new ArrayList<>(k);
+        for (Candidate candidate : found) {
+            if (!deleted[candidate.node]) {
+                results.add(candidate);
+                if (results.size() == k) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    public long key(int node) {
+        return keys[node];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int liveSize() {
+        return size - deletedCount;
+    }
+
+    public int deletedCount() {
+        return deletedCount;
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, queryOffset, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int candidate = neighbours[i];
+                float d = distance(query, queryOffset, candidate);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer; returns up to ef candidates sorted by ascending distance.
+     */
+    private List<Candidate> searchLayer(float[] query, int queryOffset, int entry, int ef, int level) {
+        VisitedSet seen = visited.get();
+        seen.reset(size);
+
+        PriorityQueue<Candidate> toVisit = new PriorityQueue<>(Comparator.comparingDouble(c -> c.distance));
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble((Candidate c) -> c.distance).reversed());
+
+        Candidate first = new Candidate(entry, distance(query, queryOffset, entry));
+        seen.add(entry);
+        toVisit.add(first);
+        best.add(first);
+
+        while (!toVisit.isEmpty()) {
+            Candidate current = toVisit.poll();
+            if (current.distance > best.peek().distance && best.size() >= ef) {
+                break;
+            }
+            int[] neighbours = links[current.node][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (!seen.add(neighbour)) {
+                    continue;
+                }
+                float d = distance(query, queryOffset, neighbour);
+                if (best.size() < ef || d < best.peek().distance) {
+                    Candidate candidate = new Candidate(neighbour, d);
+                    toVisit.add(candidate);
+                    best.add(candidate);
+                    if (best.size() > ef) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(c -> c.distance));
+        return result;
+    }
+
+    private void addLink(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        int capacity = neighbours.length - 1;
+        if (count < capacity) {
+            neighbours[count + 1] = to;
+            neighbours[0] = count + 1;
+            return;
+        }
+
+        // Full: keep the closest connections of the existing neighbours plus the new one
+        List<Candidate> candidates = new ArrayList<>(capacity + 1);
+        int fromOffset = from * dimension;
+        for (int i = 1; i <= count; i++) {
+            candidates.add(new Candidate(neighbours[i], distance(vectors, fromOffset, neighbours[i])));
+        }
+        candidates.add(new Candidate(to, distance(vectors, fromOffset, to)));
+        List<Candidate> kept = closest(candidates, capacity);
+        neighbours[0] = kept.size();
+        for (int i = 0; i < kept.size(); i++) {
+            neighbours[i + 1] = kept.get(i).node;
+        }
+    }
+
+    private static List<Candidate> closest(List<Candidate> candidates, int limit) {
+        List<Candidate> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingDouble(c -> c.distance));
+        return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+    }
+
+    private float distance(float[] query, int queryOffset, int node) {
+        return 1.0f - VectorMath.dot(query, queryOffset, vectors, node * dimension, dimension);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxConnections0 : m;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= keys.length) {
+            return;
+        }
+        int capacity = Math.max(required, keys.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        keys = Arrays.copyOf(keys, capacity);
+        levels = Arrays.copyOf(levels, capacity);
+        links = Arrays.copyOf(links, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    public static final class Candidate {
+        final int node;
+        final float distance;
+
+        Candidate(int node, float distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        public int node() {
+            return node;
+        }
+
+        public float similarity() {
+            return 1.0f - distance;
+        }
+    }
+
+    /**
+     * Generation-stamped visited marks, reused per thread to avoid clearing a set per search.
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        boolean add(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
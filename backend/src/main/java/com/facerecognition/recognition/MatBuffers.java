@@ -0,0 +1,172 @@
+package com.facerecognition.recognition;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfRect;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Scratch Mats for detection and encoding, reused by every frame a thread handles.
+ *
+ * OpenCV only reallocates an output Mat when the size or type changes, so frames
+ * of the same resolution run without native allocations. Platform threads keep
+ * one set for their lifetime. Virtual threads are short-lived and numerous, so
+ * they get a fresh set that is released when the caller closes it.
+ *
+ * Thread-owned sets are registered per thread. Pools whose threads come from
+ * {@link #releasingOnExit} release a thread's set as the thread ends; sets of
+ * threads that ended some other way (container threads, pools shrinking) are
+ * released the next time any thread creates a set.
+ *
+ * The compressed input and the float grid are Mats over direct ByteBuffers, so
+ * frame bytes reach imdecode through one copy into reused native memory and the
+ * encoding is read straight out of the grid's memory.
+ *
+ * A buffer's content is only valid until the next call that writes into it on
+ * the same thread, so nothing derived from them may be kept beyond the method
+ * that filled them.
+ */
+public final class MatBuffers implements AutoCloseable {
+
+    private static final Map<Thread, MatBuffers> THREAD_OWNED = new ConcurrentHashMap<>();
+    private static final ThreadLocal<MatBuffers> PER_THREAD = ThreadLocal.withInitial(MatBuffers::registerForCurrentThread);
+
+    // Detection: grayscale frame, working-resolution copy, equalised copy, cascade output
+    public final Mat gray = new Mat();
+    public final Mat reduced = new Mat();
+    public final Mat equalized = new Mat();
+    public final MatOfRect detections = new MatOfRect();
+    // Encoding: 128x128 face crop, its grayscale, the 16x16 grid and the grid as floats
+    public final Mat face = new Mat();
+    public final Mat faceGray = new Mat();
+    public final Mat grid = new Mat();
+    private final ByteBuffer gridData = ByteBuffer.allocateDirect(FaceEncoding.BYTES).order(ByteOrder.nativeOrder());
+    public final Mat gridFloat = new Mat(FaceEncoding.GRID_SIZE, FaceEncoding.GRID_SIZE, CvType.CV_32F, gridData);
+
+    // Compressed frame bytes for imdecode; grown to the largest frame seen
+    private ByteBuffer encodedData = ByteBuffer.allocateDirect(0);
+    private Mat encoded;
+
+    private final boolean threadOwned;
+
+    private MatBuffers(boolean threadOwned) {
+        this.threadOwned = threadOwned;
+    }
+
+    /**
+     * Buffers for the current thread; use in try-with-resources
+     */
+    public static MatBuffers acquire() {
+        return Thread.currentThread().isVirtual() ? new MatBuffers(false) : PER_THREAD.get();
+    }
+
+    private static MatBuffers registerForCurrentThread() {
+        releaseTerminatedThreads();
+        MatBuffers buffers = new MatBuffers(true);
+        THREAD_OWNED.put(Thread.currentThread(), buffers);
+        return buffers;
+    }
+
+    /**
+     * Release the calling thread's set, if it has one. The next acquire() on this
+     * thread starts a new set.
+     */
+    public static void releaseCurrentThread() {
+        MatBuffers buffers = THREAD_OWNED.remove(Thread.currentThread());
+        if (buffers != null) {
+            PER_THREAD.remove();
+            buffers.releaseAll();
+        }
+    }
+
+    /**
+     * Release the sets of threads that have terminated without releasing their own
+     *
+     * @return the number of sets released
+     */
+    public static int releaseTerminatedThreads() {
+        int released = 0;
+        for (Iterator<Map.Entry<Thread, MatBuffers>> it = THREAD_OWNED.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Thread, MatBuffers> entry = it.next();
+            if (!entry.getKey().isAlive()) {
+                it.remove();
+                entry.getValue().releaseAll();
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Number of thread-owned sets currently holding native memory
+     */
+    public static int threadOwnedSets() {
+        return THREAD_OWNED.size();
+    }
+
+    /**
+     * Wrap a thread factory so every thread it creates releases its set when its task ends
+     */
+    public static ThreadFactory releasingOnExit(ThreadFactory threadFactory) {
+        return runnable -> threadFactory.newThread(() -> {
+            try {
+                runnable.run();
+            } finally {
+                releaseCurrentThread();
+            }
+        });
+    }
+
+    /**
+     * The bytes of a compressed image as a 1xN CV_8U Mat over this thread's input buffer.
+     * The Mat stays valid until the next call on the same thread.
+     */
+    public Mat encoded(byte[] bytes) {
+        if (encodedData.capacity() < bytes.length) {
+            MatScope.release(encoded);
+            encoded = null;
+            encodedData = ByteBuffer.allocateDirect(Math.max(64 * 1024, Integer.highestOneBit(bytes.length) << 1));
+        }
+        encodedData.clear();
+        encodedData.put(bytes);
+        if (encoded == null || encoded.cols() != bytes.length) {
+            MatScope.release(encoded);
+            encoded = new Mat(1, bytes.length, CvType.CV_8U, encodedData);
+        }
+        return encoded;
+    }
+
+    /**
+     * The float grid as written by the last convertTo into {@link #gridFloat}
+     */
+    public FloatBuffer gridValues() {
+        return gridData.asFloatBuffer();
+    }
+
+    @Override
+    public void close() {
+        if (!threadOwned) {
+            releaseAll();
+        }
+    }
+
+    private void releaseAll() {
+        MatScope.release(encoded);
+        encoded = null;
+        gray.release();
+        reduced.release();
+        equalized.release();
+        detections.release();
+        face.release();
+        faceGray.release();
+        grid.release();
+        gridFloat.release();
+    }
+}
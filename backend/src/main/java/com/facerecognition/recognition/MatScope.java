@@ -0,0 +1,47 @@
+package com.facerecognition.recognition;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns native Mats for the length of a try-with-resources block and releases them,
+ * newest first, when it closes. The Java wrappers are tiny, so without an explicit
+ * release the native buffers live until the GC happens to collect them.
+ */
+public final class MatScope implements AutoCloseable {
+
+    private final List<Mat> owned = new ArrayList<>(4);
+
+    /**
+     * Take ownership of a Mat and return it
+     */
+    public <T extends Mat> T add(T mat) {
+        if (mat != null) {
+            owned.add(mat);
+        }
+        return mat;
+    }
+
+    public Mat newMat() {
+        return add(new Mat());
+    }
+
+    @Override
+    public void close() {
+        for (int i = owned.size() - 1; i >= 0; i--) {
+            owned.get(i).release();
+        }
+        owned.clear();
+    }
+
+    /**
+     * Release a Mat owned by nobody else, e.g. one handed over between pipeline stages
+     */
+    public static void release(Mat mat) {
+        if (mat != null) {
+            mat.release();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.facerecognition.recognition;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Outcome of recognising one face in a frame: where it is, the accepted match
+ * (if any), the best gallery candidates and how long each step took.
+ */
+@Value
+@Builder(toBuilder = true)
+public class MatchResult {
+
+    /** True when a face was found and the best candidate cleared the recognition threshold */
+    boolean matched;
+
+    /** False when no face could be detected in the frame */
+    boolean faceDetected;
+
+    Long personId;
+    Long faceDataId;
+
+    /** Bounding box of the face in full-resolution frame coordinates */
+    int faceX;
+    int faceY;
+    int faceWidth;
+    int faceHeight;
+
+    /** Camera track the face belongs to, when tracking is enabled */
+    Long trackId;
+
+    /** True when the identity was reused from the track instead of re-running encode and match */
+    boolean tracked;
+
+    /** Similarity of the best candidate, whether or not it was accepted */
+    double score;
+
+    @Singular
+    List<GalleryMatch> candidates;
+
+    /** Decode and detection time are shared by every face of the frame; encode and match are per face */
+    double decodeMillis;
+    double detectMillis;
+    double encodeMillis;
+    double matchMillis;
+
+    public double getTotalMillis() {
+        return decodeMillis + detectMillis + encodeMillis + matchMillis;
+    }
+
+    public static MatchResult noFace(double decodeMillis, double detectMillis) {
+        return MatchResult.builder()
+            .decodeMillis(decodeMillis)
+            .detectMillis(detectMillis)
+            .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.facerecognition.recognition;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * 64-bit difference hash (dHash) of a grayscale frame: the frame is shrunk to
+ * 9x8 and each bit records whether a pixel is darker than its right neighbour.
+ * Near-identical frames have a small Hamming distance.
+ */
+public final class PerceptualHash {
+
+    private PerceptualHash() {
+    }
+
+    public static long dHash(Mat gray) {
+        Mat small = new Mat();
+        Imgproc.resize(gray, small, new Size(9, 8), 0, 0, Imgproc.INTER_AREA);
+        byte[] pixels = new byte[9 * 8];
+        small.get(0, 0, pixels);
+        small.release();
+
+        long hash = 0L;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int left = pixels[y * 9 + x] & 0xFF;
+                int right = pixels[y * 9 + x + 1] & 0xFF;
+                hash <<= 1;
+                if (left < right) {
+                    hash |= 1L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+}
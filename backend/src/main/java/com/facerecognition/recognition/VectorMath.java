@@ -0,0 +1,69 @@
+package com.facerecognition.recognition;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Distance kernels for face encodings.
+ *
+ * Uses the JDK Vector API when the jdk.incubator.vector module is available
+ * (started with --add-modules jdk.incubator.vector) and falls back to a plain
+ * scalar loop otherwise.
+ */
+@Slf4j
+public final class VectorMath {
+
+    interface DotKernel {
+        float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+    }
+
+    private static final DotKernel KERNEL = selectKernel();
+
+    private VectorMath() {
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return KERNEL.dot(a, 0, b, 0, Math.min(a.length, b.length));
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return KERNEL.dot(a, aOffset, b, bOffset, length);
+    }
+
+    public static boolean isSimdEnabled() {
+        return !(KERNEL instanceof ScalarKernel);
+    }
+
+    private static DotKernel selectKernel() {
+        if (Boolean.getBoolean("face.recognition.simd.disabled")) {
+            log.info("Vector API disabled by system property, using scalar distance kernel");
+            return new ScalarKernel();
+        }
+        try {
+            DotKernel kernel = new SimdDotKernel();
+            log.info("Using Vector API distance kernel ({} float lanes)", SimdDotKernel.lanes());
+            return kernel;
+        } catch (Throwable t) {
+            // NoClassDefFoundError when jdk.incubator.vector is not resolved at runtime
+            log.info("Vector API not available ({}), using scalar distance kernel", t.toString());
+            return new ScalarKernel();
+        }
+    }
+
+    static final class ScalarKernel implements DotKernel {
+        @Override
+        public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            for (; i + 3 < length; i += 4) {
+                s0 += a[aOffset + i] * b[bOffset + i];
+                s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+                s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+                s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+            }
+            for (; i < length; i++) {
+                s0 += a[aOffset + i] * b[bOffset + i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.facerecognition.repository;
 
 import com.facerecognition.model.DetectionLog;
 import com.facerecognition.model.Person;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -22,6 +24,23 @@ public interface DetectionLogRepository extends JpaRepository<DetectionLog, Long
     @Query("SELECT dl FROM DetectionLog dl WHERE dl.notificationSent = false")
     List<DetectionLog> findPendingNotifications();
     
-    @Query("SELECT dl FROM DetectionLog dl WHERE dl.cameraId = :cameraId ORDER BY dl.detectionTime DESC")
-    List<DetectionLog> findByCameraIdOrderByDetectionTimeDesc(String cameraId);
+    // Newest-first keyset pagination; the cursor is the (detectionTime, id) of the last row of the previous page
+    
+    @Query("SELECT dl FROM DetectionLog dl ORDER BY dl.detectionTime DESC, dl.id DESC")
+    List<DetectionLog> findLatest(Pageable page);
+    
+    @Query("SELECT dl FROM DetectionLog dl WHERE dl.detectionTime < :beforeTime " +
+           "OR (dl.detectionTime = :beforeTime AND dl.id < :beforeId) ORDER BY dl.detectionTime DESC, dl.id DESC")
+    List<DetectionLog> findLatestBefore(LocalDateTime beforeTime, Long beforeId, Pageable page);
+    
+    @Query("SELECT dl FROM DetectionLog dl WHERE dl.cameraId = :cameraId ORDER BY dl.detectionTime DESC, dl.id DESC")
+    List<DetectionLog> findLatestByCamera(String cameraId, Pageable page);
+    
+    @Query("SELECT dl FROM DetectionLog dl WHERE dl.cameraId = :cameraId AND (dl.detectionTime < :beforeTime " +
+           "OR (dl.detectionTime = :beforeTime AND dl.id < :beforeId)) ORDER BY dl.detectionTime DESC, dl.id DESC")
+    List<DetectionLog> findLatestByCameraBefore(String cameraId, LocalDateTime beforeTime, Long beforeId, Pageable page);
+    
+    @Modifying
+    @Query("UPDATE DetectionLog dl SET dl.emailSent = :emailSent, dl.smsSent = :smsSent, dl.notificationSent = :notificationSent WHERE dl.id = :id")
+    int updateNotificationStatus(Long id, boolean emailSent, boolean smsSent, boolean notificationSent);
 }
\ No newline at end of file
@@ -2,10 +2,12 @@ package com.facerecognition.repository;
 
 import com.facerecognition.model.FaceData;
 import com.facerecognition.model.Person;
+import com.facerecognition.recognition.GalleryEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,9 +17,32 @@ public interface FaceDataRepository extends JpaRepository<FaceData, Long> {
     
     List<FaceData> findByIsActiveTrue();
     
+    // Only ids and the encoding vector, for loading the gallery
+    @Query("SELECT new com.facerecognition.recognition.GalleryEntry(fd.id, p.id, fd.faceEncoding) " +
+           "FROM FaceData fd JOIN fd.person p " +
+           "WHERE fd.isActive = true AND p.isActive = true AND fd.faceEncoding IS NOT NULL")
+    List<GalleryEntry> findGalleryEntries();
+    
+    // Catch-up after loading a gallery snapshot: rows added since, and which older rows are still active
+    @Query("SELECT new com.facerecognition.recognition.GalleryEntry(fd.id, p.id, fd.faceEncoding) " +
+           "FROM FaceData fd JOIN fd.person p " +
+           "WHERE fd.id > :afterId AND fd.isActive = true AND p.isActive = true AND fd.faceEncoding IS NOT NULL")
+    List<GalleryEntry> findGalleryEntriesAfter(Long afterId);
+    
+    @Query("SELECT new com.facerecognition.recognition.GalleryEntry(fd.id, p.id, fd.faceEncoding) " +
+           "FROM FaceData fd JOIN fd.person p WHERE fd.id IN :ids AND fd.faceEncoding IS NOT NULL")
+    List<GalleryEntry> findGalleryEntriesByIds(Collection<Long> ids);
+    
+    @Query("SELECT fd.id FROM FaceData fd JOIN fd.person p " +
+           "WHERE fd.id <= :maxId AND fd.isActive = true AND p.isActive = true AND fd.faceEncoding IS NOT NULL")
+    List<Long> findGalleryIdsUpTo(Long maxId);
+    
     @Query("SELECT fd FROM FaceData fd WHERE fd.person.id = :personId AND fd.isActive = true")
     List<FaceData> findActiveByPersonId(Long personId);
     
+    @Query("SELECT fd FROM FaceData fd WHERE fd.faceEncoding IS NULL AND fd.legacyFaceEncoding IS NOT NULL")
+    List<FaceData> findPendingEncodingMigration();
+    
     @Query("SELECT fd FROM FaceData fd WHERE fd.confidenceScore >= :threshold AND fd.isActive = true")
     List<FaceData> findByMinConfidenceScore(Double threshold);
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.facerecognition.service;
+
+import com.facerecognition.dto.DetectionRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latest-wins frame slot per camera for streamed ingestion.
+ *
+ * Each camera holds at most one unprocessed frame; a newer frame replaces it.
+ * A camera is drained by at most one worker at a time, which keeps a single
+ * frame of that camera in the detection pipeline and waits for it to finish,
+ * so a slow pipeline drops stale frames instead of building a backlog.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CameraFrameMailbox {
+
+    private final DetectionPipeline detectionPipeline;
+
+    // Cameras with a frame in the pipeline at once; 0 means one per available processor
+    @Value("${face.stream.workers:0}")
+    private int workerCount;
+
+    private final Map<String, DetectionRequest> pendingFrames = new ConcurrentHashMap<>();
+    private final Map<String, AtomicBoolean> draining = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        int threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "camera-stream-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Camera frame mailbox started with {} workers", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Offer a frame; replaces any frame of the same camera that has not started processing yet.
+     */
+    public void offer(DetectionRequest frame) {
+        String cameraId = frame.getCameraId();
+        received.incrementAndGet();
+        if (pendingFrames.put(cameraId, frame) != null) {
+            superseded.incrementAndGet();
+        }
+        scheduleDrain(cameraId);
+    }
+
+    private void scheduleDrain(String cameraId) {
+        AtomicBoolean flag = draining.computeIfAbsent(cameraId, id -> new AtomicBoolean());
+        if (flag.compareAndSet(false, true)) {
+            workers.execute(() -> drain(cameraId, flag));
+        }
+    }
+
+    private void drain(String cameraId, AtomicBoolean flag) {
+        try {
+            DetectionRequest frame;
+            while ((frame = pendingFrames.remove(cameraId)) != null) {
+                detectionPipeline.put(frame).getCompletion().join();
+                processed.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Forget the camera until its next frame so cameras that stop streaming leave nothing
+            // behind. Removing the flag while it is still set keeps a concurrent offer from
+            // starting a second drain on it; that offer creates a fresh flag instead.
+            draining.remove(cameraId, flag);
+            flag.set(false);
+        }
+        // A frame may have arrived between the last remove() and clearing the flag
+        if (pendingFrames.containsKey(cameraId) && !workers.isShutdown()) {
+            scheduleDrain(cameraId);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("framesReceived", received.get());
+        stats.put("framesSuperseded", superseded.get());
+        stats.put("framesProcessed", processed.get());
+        stats.put("camerasWithPendingFrame", pendingFrames.size());
+        return stats;
+    }
+}
@@ -0,0 +1,106 @@
+package com.facerecognition.service;
+
+import com.facerecognition.dto.DetectionEvent;
+import com.facerecognition.mapper.PersonMapper;
+import com.facerecognition.model.DetectionLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes detection results to camera clients as slim {@link DetectionEvent}s.
+ *
+ * Each event is serialized once to bytes and sent as a pre-encoded message, so
+ * the broker fans the same payload out to every subscriber without converting
+ * it again. The last event of each camera is kept encoded, which lets a skipped
+ * duplicate frame re-publish it without serializing anything. Duplicates are only
+ * recognised within face.dedup.max.age.millis, so older entries are dropped.
+ *
+ * With face.events.cbor.enabled the event is also sent CBOR-encoded on
+ * /topic/detection-results-cbor/{cameraId} for high-rate binary clients.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionEventPublisher {
+
+    public static final String RESULTS_TOPIC = "/topic/detection-results/";
+    public static final String CBOR_RESULTS_TOPIC = "/topic/detection-results-cbor/";
+    private static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    private record EncodedEvent(Long detectionId, byte[] json, byte[] cbor, long encodedMillis) {
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PersonMapper personMapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${face.events.cbor.enabled:false}")
+    private boolean cborEnabled;
+
+    @Value("${face.dedup.max.age.millis:5000}")
+    private long maxEventAgeMillis;
+
+    private ObjectMapper cborMapper;
+    private final Map<String, EncodedEvent> lastEventByCamera = new ConcurrentHashMap<>();
+    private final AtomicLong lastEvictionMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (cborEnabled) {
+            // Same modules and settings as the JSON mapper, CBOR output
+            cborMapper = objectMapper.copyWith(new CBORFactory());
+        }
+    }
+
+    public void publish(DetectionLog detectionLog) throws JsonProcessingException {
+        String cameraId = detectionLog.getCameraId();
+        evictStaleEvents(System.currentTimeMillis());
+        EncodedEvent event = lastEventByCamera.get(cameraId);
+        if (event == null || !detectionLog.getId().equals(event.detectionId())) {
+            event = encode(detectionLog);
+            lastEventByCamera.put(cameraId, event);
+        }
+
+        send(RESULTS_TOPIC + cameraId, event.json(), MimeTypeUtils.APPLICATION_JSON);
+        if (event.cbor() != null) {
+            send(CBOR_RESULTS_TOPIC + cameraId, event.cbor(), APPLICATION_CBOR);
+        }
+    }
+
+    private EncodedEvent encode(DetectionLog detectionLog) throws JsonProcessingException {
+        DetectionEvent event = personMapper.toDetectionEvent(detectionLog);
+        byte[] json = objectMapper.writeValueAsBytes(event);
+        byte[] cbor = cborMapper != null ? cborMapper.writeValueAsBytes(event) : null;
+        return new EncodedEvent(detectionLog.getId(), json, cbor, System.currentTimeMillis());
+    }
+
+    // At most once per max age, so cameras that stopped streaming do not keep their last event
+    private void evictStaleEvents(long nowMillis) {
+        long last = lastEvictionMillis.get();
+        if (nowMillis - last <= maxEventAgeMillis || !lastEvictionMillis.compareAndSet(last, nowMillis)) {
+            return;
+        }
+        lastEventByCamera.values().removeIf(event -> nowMillis - event.encodedMillis() > maxEventAgeMillis);
+    }
+
+    private void send(String destination, byte[] payload, MimeType contentType) {
+        messagingTemplate.send(destination, MessageBuilder.withPayload(payload)
+            .setHeader(MessageHeaders.CONTENT_TYPE, contentType)
+            .build());
+    }
+}
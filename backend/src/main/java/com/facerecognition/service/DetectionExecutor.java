@@ -0,0 +1,80 @@
+package com.facerecognition.service;
+
+import com.facerecognition.dto.DetectionRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for HTTP-submitted frames.
+ *
+ * Frames enter the {@link DetectionPipeline} through its bounded decode queue,
+ * so a burst cannot pile up unbounded frames on the heap. What happens when
+ * that queue is full is set by face.detection.rejection.policy:
+ * <ul>
+ *   <li>REJECT - the frame is refused and the caller answers 429 with Retry-After</li>
+ *   <li>DROP_OLDEST - the oldest queued frame is discarded to make room</li>
+ *   <li>LATEST_PER_CAMERA - frames go through the latest-wins camera mailbox instead
+ *       of the queue, so each camera holds at most one pending frame</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionExecutor {
+
+    public enum RejectionPolicy { REJECT, DROP_OLDEST, LATEST_PER_CAMERA }
+
+    private final DetectionPipeline detectionPipeline;
+    private final CameraFrameMailbox cameraFrameMailbox;
+
+    @Value("${face.detection.rejection.policy:REJECT}")
+    private RejectionPolicy rejectionPolicy;
+
+    @Value("${face.detection.retry.after.seconds:1}")
+    private int retryAfterSeconds;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong droppedOldest = new AtomicLong();
+
+    /**
+     * Queue a frame for detection.
+     *
+     * @return false if the frame was refused because the queue is full (REJECT policy only)
+     */
+    public boolean submit(DetectionRequest request) {
+        submitted.incrementAndGet();
+        switch (rejectionPolicy) {
+            case LATEST_PER_CAMERA -> cameraFrameMailbox.offer(request);
+            case DROP_OLDEST -> droppedOldest.addAndGet(detectionPipeline.offerDroppingOldest(request));
+            default -> {
+                if (detectionPipeline.offer(request) == null) {
+                    rejected.incrementAndGet();
+                    log.warn("Detection queue full, rejecting frame from camera {}", request.getCameraId());
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rejectionPolicy", rejectionPolicy.name());
+        stats.put("queueDepth", detectionPipeline.getQueueDepth());
+        stats.put("framesSubmitted", submitted.get());
+        stats.put("framesRejected", rejected.get());
+        stats.put("framesDroppedOldest", droppedOldest.get());
+        return stats;
+    }
+}
@@ -0,0 +1,156 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.repository.DetectionLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for detection logs.
+ *
+ * Logs from all frames are collected and inserted together - one transaction
+ * and JDBC batches of hibernate.jdbc.batch_size rows - once
+ * face.persistence.batch.size logs are waiting or the oldest has waited
+ * face.persistence.max.delay.millis. With no delay, the default, each batch
+ * holds the logs that queued while the previous batch was written. Each caller
+ * gets its saved log, with id, through a future. Pending logs are flushed on
+ * shutdown.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionLogWriter {
+
+    private record PendingLog(DetectionLog detectionLog, CompletableFuture<DetectionLog> saved) {
+    }
+
+    private final DetectionLogRepository detectionLogRepository;
+    private final TransactionRunner transactionRunner;
+
+    @Value("${face.persistence.batch.size:50}")
+    private int batchSize;
+
+    @Value("${face.persistence.max.delay.millis:0}")
+    private long maxDelayMillis;
+
+    @Value("${face.persistence.queue.capacity:1000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingLog> pending;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        pending = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::run, "detection-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Detection log write-behind started: batches of up to {} logs, at most {} ms delay",
+                 batchSize, maxDelayMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        // Whatever the flusher did not get to
+        List<PendingLog> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        while (!remaining.isEmpty()) {
+            List<PendingLog> batch = remaining.subList(0, Math.min(batchSize, remaining.size()));
+            flush(new ArrayList<>(batch));
+            batch.clear();
+        }
+        log.info("Detection log writer stopped after {} rows in {} batches", rows.get(), batches.get());
+    }
+
+    /**
+     * Queue a log for the next batch; waits while the buffer is full
+     */
+    public CompletableFuture<DetectionLog> save(DetectionLog detectionLog) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Detection log writer is shut down");
+        }
+        PendingLog entry = new PendingLog(detectionLog, new CompletableFuture<>());
+        pending.put(entry);
+        return entry.saved();
+    }
+
+    private void run() {
+        List<PendingLog> batch = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (running && !stopping) {
+            try {
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                while (batch.size() < batchSize) {
+                    pending.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingLog next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: write what was collected with the interrupt cleared, then stop
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingLog> batch) {
+        try {
+            List<DetectionLog> saved = transactionRunner.execute("detectionBatchInsert", () ->
+                detectionLogRepository.saveAll(batch.stream().map(PendingLog::detectionLog).toList()));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).saved().complete(saved.get(i));
+            }
+            batches.incrementAndGet();
+            rows.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to write batch of {} detection logs", batch.size(), e);
+            failedRows.addAndGet(batch.size());
+            batch.forEach(entry -> entry.saved().completeExceptionally(e));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("batches", batchCount);
+        stats.put("rows", rows.get());
+        stats.put("failedRows", failedRows.get());
+        stats.put("avgBatchSize", batchCount > 0 ? (double) rows.get() / batchCount : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,158 @@
+package com.facerecognition.service;
+
+import com.facerecognition.dto.DetectionRequest;
+import com.facerecognition.pipeline.FrameContext;
+import com.facerecognition.pipeline.PipelineStage;
+import com.facerecognition.recognition.MatBuffers;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Detection as a chain of stages - decode, detect, encode, match, persist,
+ * notify, publish - each with its own bounded queue and workers, so
+ * consecutive frames overlap across stages and every stage can be sized on
+ * its own (face.pipeline.&lt;stage&gt;.workers / .queue.capacity).
+ *
+ * The CPU-bound stages run on platform threads; persist, notify and publish
+ * block on the database, mail/SMS gateways and the broker and run on virtual
+ * threads. After persist a frame fans out to notify (only when someone was
+ * recognised) and publish; the frame completes when it is published.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionPipeline {
+
+    private final DetectionService detectionService;
+    private final FaceRecognitionService faceRecognitionService;
+    private final Environment environment;
+
+    private PipelineStage<FrameContext> decodeStage;
+    private PipelineStage<FrameContext> detectStage;
+    private PipelineStage<FrameContext> encodeStage;
+    private PipelineStage<FrameContext> matchStage;
+    private PipelineStage<FrameContext> persistStage;
+    private PipelineStage<FrameContext> notifyStage;
+    private PipelineStage<FrameContext> publishStage;
+    private List<PipelineStage<FrameContext>> stages;
+
+    @PostConstruct
+    public void init() {
+        // Stage threads keep their MatBuffers until they end, then hand the native memory back
+        ThreadFactory platform = MatBuffers.releasingOnExit(Thread.ofPlatform().daemon(true).factory());
+        ThreadFactory virtual = Thread.ofVirtual().factory();
+
+        decodeStage = stage("decode", 2, 32, platform, frame -> {
+            if (detectionService.decode(frame)) {
+                detectStage.put(frame);
+            } else {
+                frame.complete();
+            }
+        });
+        detectStage = stage("detect", 0, 16, platform, frame -> {
+            frame.setAnalysis(faceRecognitionService.detectFrame(frame.getImage(), frame.getCameraId(), frame.getDecodeMillis()));
+            encodeStage.put(frame);
+        });
+        encodeStage = stage("encode", 2, 16, platform, frame -> {
+            faceRecognitionService.encodeFrame(frame.getImage(), frame.getAnalysis(), frame.getImageLabel());
+            matchStage.put(frame);
+        });
+        matchStage = stage("match", 8, 16, platform, frame -> {
+            frame.setFaceResults(faceRecognitionService.matchFrame(frame.getAnalysis(), frame.getImageLabel()));
+            frame.releaseImage();
+            persistStage.put(frame);
+        });
+        persistStage = stage("persist", 32, 64, virtual, frame -> {
+            detectionService.persist(frame);
+            if (!frame.getMatchedPersons().isEmpty()) {
+                notifyStage.put(frame);
+            }
+            publishStage.put(frame);
+        });
+        notifyStage = stage("notify", 4, 64, virtual, detectionService::notifyMatches);
+        publishStage = stage("publish", 2, 32, virtual, frame -> {
+            detectionService.publish(frame);
+            frame.complete();
+        });
+
+        stages = List.of(decodeStage, detectStage, encodeStage, matchStage, persistStage, notifyStage, publishStage);
+        stages.forEach(PipelineStage::start);
+        log.info("Detection pipeline started: {}", stages.stream()
+            .map(stage -> stage.getName() + "=" + stage.getWorkerCount())
+            .toList());
+    }
+
+    private PipelineStage<FrameContext> stage(String name, int defaultWorkers, int defaultCapacity,
+                                              ThreadFactory threadFactory, PipelineStage.Handler<FrameContext> handler) {
+        // 0 workers means one per available processor
+        int workers = environment.getProperty("face.pipeline." + name + ".workers", Integer.class, defaultWorkers);
+        int capacity = environment.getProperty("face.pipeline." + name + ".queue.capacity", Integer.class, defaultCapacity);
+        return new PipelineStage<>(name,
+            workers > 0 ? workers : Runtime.getRuntime().availableProcessors(),
+            capacity, threadFactory, handler, this::fail);
+    }
+
+    private void fail(FrameContext frame, Exception e) {
+        try {
+            detectionService.publishError(frame, e);
+        } finally {
+            frame.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stages.forEach(PipelineStage::shutdown);
+    }
+
+    /**
+     * Admit a frame without waiting
+     *
+     * @return null if the decode queue is full
+     */
+    public FrameContext offer(DetectionRequest request) {
+        FrameContext frame = new FrameContext(request);
+        return decodeStage.offer(frame) ? frame : null;
+    }
+
+    /**
+     * Admit a frame, discarding the oldest waiting frames while the decode queue is full
+     *
+     * @return the number of discarded frames
+     */
+    public int offerDroppingOldest(DetectionRequest request) {
+        List<FrameContext> discarded = decodeStage.offerDroppingOldest(new FrameContext(request));
+        discarded.forEach(FrameContext::complete);
+        return discarded.size();
+    }
+
+    /**
+     * Admit a frame, waiting for room in the decode queue
+     */
+    public FrameContext put(DetectionRequest request) throws InterruptedException {
+        FrameContext frame = new FrameContext(request);
+        decodeStage.put(frame);
+        return frame;
+    }
+
+    public int getQueueDepth() {
+        return decodeStage.queueDepth();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (PipelineStage<FrameContext> stage : stages) {
+            stats.put(stage.getName(), stage.getStats());
+        }
+        return stats;
+    }
+}
@@ -1,21 +1,34 @@
 package com.facerecognition.service;
 
 import com.facerecognition.dto.DetectionRequest;
+import com.facerecognition.model.DetectionFaceHit;
 import com.facerecognition.model.DetectionLog;
 import com.facerecognition.model.Person;
+import com.facerecognition.pipeline.FrameContext;
+import com.facerecognition.recognition.MatchResult;
 import com.facerecognition.repository.DetectionLogRepository;
+import com.facerecognition.repository.PersonRepository;
 import com.facerecognition.service.EmailService;
 import com.facerecognition.service.FaceRecognitionService;
 import com.facerecognition.service.GeocodingService;
 import com.facerecognition.service.SmsService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -24,74 +37,162 @@ public class DetectionService {
 
     private final FaceRecognitionService faceRecognitionService;
     private final DetectionLogRepository detectionLogRepository;
+    private final PersonRepository personRepository;
     private final EmailService emailService;
     private final SmsService smsService;
     private final SimpMessagingTemplate messagingTemplate;
     private final GeocodingService geocodingService;
+    private final FrameDeduplicationService frameDeduplicationService;
+    private final DetectionEventPublisher detectionEventPublisher;
+    private final TransactionRunner transactionRunner;
+    private final DetectionLogWriter detectionLogWriter;
+    private final RecentDetectionsCache recentDetectionsCache;
 
-    @Async
-    @Transactional
-    public void processFaceDetection(DetectionRequest request) {
-        log.info("Starting asynchronous face detection process for camera: {}", request.getCameraId());
-        try {
-            // Check if face recognition service is properly initialized
-            if (!faceRecognitionService.isInitialized()) {
-                String status = faceRecognitionService.getInitializationStatus();
-                log.error("Face recognition service not initialized: {}", status);
-                throw new IllegalStateException("Face recognition service is not properly initialized: " + status);
-            }
+    @Value("${face.images.persist.detections:true}")
+    private boolean persistDetectionImages;
 
-            // Save detection image from Base64 string
-            String imagePath = faceRecognitionService.saveImageFromBase64(request.getBase64Image(), "detection_" + System.currentTimeMillis());
-            log.info("Detection image saved to: {}", imagePath);
-
-            // Try to match face - location data should not be part of matching logic
-            Person matchedPerson = faceRecognitionService.matchFace(imagePath);
-            double confidence = 0.0;
-            if (matchedPerson != null) {
-                // If a person is matched, we need to get the confidence score.
-                // This requires a small refactor of matchFace to return a match result object.
-                // For now, we'll re-calculate for simplicity, but this is inefficient.
-                String capturedEncoding = faceRecognitionService.extractFaceEncoding(imagePath);
-                confidence = faceRecognitionService.getBestMatchConfidence(capturedEncoding);
-            }
+    /**
+     * Decode step: resolve the frame bytes, skip near-duplicates and decode the image in memory.
+     *
+     * @return false if the frame was a duplicate and needs no further processing
+     */
+    public boolean decode(FrameContext frame) throws IOException {
+        // Check if face recognition service is properly initialized
+        if (!faceRecognitionService.isInitialized()) {
+            String status = faceRecognitionService.getInitializationStatus();
+            log.error("Face recognition service not initialized: {}", status);
+            throw new IllegalStateException("Face recognition service is not properly initialized: " + status);
+        }
+
+        DetectionRequest request = frame.getRequest();
+        long decodeStart = System.nanoTime();
+        byte[] imageBytes = request.getImageBytes() != null
+            ? request.getImageBytes()
+            : faceRecognitionService.decodeBase64Image(request.getBase64Image());
 
-            String locationAddress = geocodingService.getAddressFromCoordinates(request.getLatitude(), request.getLongitude());
-
-            // Create detection log
-            DetectionLog detectionLog = new DetectionLog();
-            detectionLog.setPerson(matchedPerson);
-            detectionLog.setDetectionImagePath(imagePath);
-            detectionLog.setLatitude(request.getLatitude());
-            detectionLog.setLongitude(request.getLongitude());
-            detectionLog.setLocationAddress(locationAddress);
-            detectionLog.setCameraId(request.getCameraId());
-            detectionLog.setCameraType(request.getCameraType());
-            detectionLog.setConfidenceScore(confidence);
-
-            DetectionLog savedLog = detectionLogRepository.save(detectionLog);
-            log.info("Detection log saved with ID: {}", savedLog.getId());
-
-            // Send notifications if person is matched
-            if (matchedPerson != null) {
-                sendNotifications(matchedPerson, savedLog);
+        // Near-identical to the camera's last processed frame: reuse that result or drop the frame
+        FrameDeduplicationService.Check dedupCheck = frameDeduplicationService.check(request.getCameraId(), imageBytes);
+        if (dedupCheck.isDuplicate()) {
+            if (dedupCheck.getPreviousResult() != null) {
+                detectionEventPublisher.publish(dedupCheck.getPreviousResult());
             }
+            log.debug("Skipped duplicate frame from camera {}", request.getCameraId());
+            return false;
+        }
+
+        // The same Mat is shared by detection and encoding
+        frame.setImageBytes(imageBytes);
+        frame.setFrameHash(dedupCheck.getHash());
+        frame.setImage(faceRecognitionService.decodeImage(imageBytes));
+        frame.setDecodeMillis((System.nanoTime() - decodeStart) / 1_000_000.0);
+        return true;
+    }
 
-            // Send the result back to the client via WebSocket
-            // The topic includes the camera ID to ensure the message goes to the correct client
-            String destination = "/topic/detection-results/" + request.getCameraId();
-            messagingTemplate.convertAndSend(destination, savedLog);
-            log.info("Sent detection result to WebSocket destination: {}", destination);
+    /**
+     * Persist step: store the frame image if configured and save the detection log.
+     * The log is inserted by {@link DetectionLogWriter} together with other frames' logs;
+     * file, lookup and geocoding I/O run outside any transaction.
+     */
+    public void persist(FrameContext frame) throws IOException, InterruptedException {
+        DetectionRequest request = frame.getRequest();
+        List<MatchResult> faceResults = frame.getFaceResults();
 
-        } catch (Exception e) {
-            log.error("Error during asynchronous face detection process", e);
-            // Optionally, send an error message back via WebSocket
-            String errorDestination = "/topic/detection-error/" + request.getCameraId();
-            messagingTemplate.convertAndSend(errorDestination, "Error processing image: " + e.getMessage());
+        // Keeping the original frame on disk is optional and never re-encodes it
+        String imagePath = null;
+        if (persistDetectionImages) {
+            imagePath = faceRecognitionService.saveImageBytes(frame.getImageBytes(), "detection");
+        }
+
+        Map<Long, Person> matchedPersons = loadMatchedPersons(faceResults);
+
+        // The best accepted face becomes the log's primary person and confidence
+        MatchResult primary = faceResults.stream()
+            .filter(MatchResult::isMatched)
+            .max(Comparator.comparingDouble(MatchResult::getScore))
+            .orElse(null);
+        Person matchedPerson = primary != null ? matchedPersons.get(primary.getPersonId()) : null;
+        double confidence = primary != null ? primary.getScore() : 0.0;
+
+        String locationAddress = geocodingService.getAddressFromCoordinates(request.getLatitude(), request.getLongitude());
+
+        // Create detection log
+        DetectionLog detectionLog = new DetectionLog();
+        detectionLog.setPerson(matchedPerson);
+        detectionLog.setDetectionImagePath(imagePath);
+        detectionLog.setLatitude(request.getLatitude());
+        detectionLog.setLongitude(request.getLongitude());
+        detectionLog.setLocationAddress(locationAddress);
+        detectionLog.setCameraId(request.getCameraId());
+        detectionLog.setCameraType(request.getCameraType());
+        detectionLog.setConfidenceScore(confidence);
+        detectionLog.setDetectionTime(LocalDateTime.now());
+        detectionLog.setFaceHits(toFaceHits(faceResults, matchedPersons));
+
+        DetectionLog savedLog = detectionLogWriter.save(detectionLog).join();
+        recentDetectionsCache.record(savedLog);
+        frameDeduplicationService.recordResult(request.getCameraId(), frame.getFrameHash(), savedLog);
+        log.info("Detection log saved with ID: {} ({} faces, {} recognised)",
+                 savedLog.getId(), faceResults.size(), matchedPersons.size());
+
+        frame.setMatchedPersons(matchedPersons);
+        frame.setSavedLog(savedLog);
+        // The encoded frame is no longer needed once it is on disk
+        frame.setImageBytes(null);
+    }
+
+    /**
+     * Notify step: alert every person recognised in the frame
+     */
+    public void notifyMatches(FrameContext frame) {
+        for (Person person : frame.getMatchedPersons().values()) {
+            sendNotifications(person, frame.getSavedLog());
         }
     }
 
-    @Async
+    /**
+     * Publish step: send the result back to the camera's client via WebSocket
+     */
+    public void publish(FrameContext frame) throws JsonProcessingException {
+        detectionEventPublisher.publish(frame.getSavedLog());
+        log.info("Sent detection result {} to camera {}", frame.getSavedLog().getId(), frame.getCameraId());
+    }
+
+    public void publishError(FrameContext frame, Exception e) {
+        log.error("Error during asynchronous face detection process", e);
+        String errorDestination = "/topic/detection-error/" + frame.getCameraId();
+        messagingTemplate.convertAndSend(errorDestination, "Error processing image: " + e.getMessage());
+    }
+
+    private Map<Long, Person> loadMatchedPersons(List<MatchResult> faceResults) {
+        Set<Long> personIds = faceResults.stream()
+            .filter(MatchResult::isMatched)
+            .map(MatchResult::getPersonId)
+            .collect(Collectors.toSet());
+        if (personIds.isEmpty()) {
+            return Map.of();
+        }
+        return personRepository.findAllById(personIds).stream()
+            .collect(Collectors.toMap(Person::getId, Function.identity()));
+    }
+
+    private List<DetectionFaceHit> toFaceHits(List<MatchResult> faceResults, Map<Long, Person> matchedPersons) {
+        List<DetectionFaceHit> hits = new ArrayList<>(faceResults.size());
+        for (MatchResult result : faceResults) {
+            Person person = result.isMatched() ? matchedPersons.get(result.getPersonId()) : null;
+            hits.add(new DetectionFaceHit(
+                person != null ? person.getId() : null,
+                person != null ? person.getName() : null,
+                person != null ? result.getFaceDataId() : null,
+                result.getScore(),
+                person != null,
+                result.getFaceX(),
+                result.getFaceY(),
+                result.getFaceWidth(),
+                result.getFaceHeight()));
+        }
+        return hits;
+    }
+
     public void sendNotifications(Person person, DetectionLog detectionLog) {
         try {
             // Send email notification
@@ -110,29 +211,48 @@ public class DetectionService {
         }
     }
 
-    @Transactional
     public void updateNotificationStatus(Long detectionId, boolean emailSent, boolean smsSent) {
-        detectionLogRepository.findById(detectionId).ifPresent(log -> {
-            log.setEmailSent(emailSent);
-            log.setSmsSent(smsSent);
-            log.setNotificationSent(emailSent || smsSent);
-            detectionLogRepository.save(log);
-        });
+        transactionRunner.executeWithoutResult("notificationStatusUpdate", () ->
+            detectionLogRepository.updateNotificationStatus(detectionId, emailSent, smsSent, emailSent || smsSent));
+        recentDetectionsCache.updateNotificationStatus(detectionId, emailSent, smsSent);
     }
 
-    public List<DetectionLog> getRecentDetections(int limit) {
-        return detectionLogRepository.findAll()
-            .stream()
-            .sorted((a, b) -> b.getDetectionTime().compareTo(a.getDetectionTime()))
-            .limit(limit)
-            .toList();
+    /**
+     * Newest detections first. Without a cursor the page comes from the in-memory recent
+     * buffer; with one it is the keyset page after (beforeTime, beforeId).
+     */
+    public List<DetectionLog> getRecentDetections(int limit, LocalDateTime beforeTime, Long beforeId) {
+        requireCursorTime(beforeTime, beforeId);
+        if (beforeTime == null) {
+            return recentDetectionsCache.latest(limit);
+        }
+        return detectionLogRepository.findLatestBefore(beforeTime, cursorId(beforeId), PageRequest.of(0, limit));
     }
 
     public List<DetectionLog> getDetectionsByPerson(Person person) {
         return detectionLogRepository.findByPersonOrderByDetectionTimeDesc(person);
     }
 
-    public List<DetectionLog> getDetectionsByCamera(String cameraId) {
-        return detectionLogRepository.findByCameraIdOrderByDetectionTimeDesc(cameraId);
+    /**
+     * Same as {@link #getRecentDetections} for one camera
+     */
+    public List<DetectionLog> getDetectionsByCamera(String cameraId, int limit, LocalDateTime beforeTime, Long beforeId) {
+        requireCursorTime(beforeTime, beforeId);
+        if (beforeTime == null) {
+            return recentDetectionsCache.latestByCamera(cameraId, limit);
+        }
+        return detectionLogRepository.findLatestByCameraBefore(cameraId, beforeTime, cursorId(beforeId), PageRequest.of(0, limit));
+    }
+
+    // An id alone is not a position in (detectionTime, id) order
+    private static void requireCursorTime(LocalDateTime beforeTime, Long beforeId) {
+        if (beforeId != null && beforeTime == null) {
+            throw new IllegalArgumentException("beforeId requires beforeTime");
+        }
+    }
+
+    // Without an id the cursor takes every row at beforeTime
+    private static long cursorId(Long beforeId) {
+        return beforeId != null ? beforeId : Long.MAX_VALUE;
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.facerecognition.service;
 
+import com.facerecognition.config.AsyncConfig;
 import com.facerecognition.model.DetectionLog;
 import com.facerecognition.model.Person;
 import jakarta.mail.MessagingException;
@@ -20,7 +21,7 @@ public class EmailService {
     
     private final JavaMailSender mailSender;
     
-    @Async
+    @Async(AsyncConfig.NOTIFICATION_EXECUTOR)
     public void sendFaceDetectionNotification(Person person, DetectionLog detectionLog) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
@@ -0,0 +1,57 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.FaceData;
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.repository.FaceDataRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Converts face encodings stored by the old Base64 string encoder into
+ * {@link FaceEncoding} vectors. Runs once at startup and is a no-op when
+ * there is nothing left to migrate.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FaceEncodingMigration {
+
+    private final FaceDataRepository faceDataRepository;
+    private final FaceGallery faceGallery;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrateLegacyEncodings() {
+        List<FaceData> pending = faceDataRepository.findPendingEncodingMigration();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        log.info("Migrating {} legacy string face encodings to float vectors", pending.size());
+        int migrated = 0;
+        for (FaceData faceData : pending) {
+            try {
+                faceData.setFaceEncoding(FaceEncoding.fromLegacyBase64(faceData.getLegacyFaceEncoding()));
+                faceData.setLegacyFaceEncoding(null);
+                migrated++;
+            } catch (IllegalArgumentException e) {
+                log.warn("Could not migrate face encoding for face data {}: {}", faceData.getId(), e.getMessage());
+            }
+        }
+        faceDataRepository.saveAll(pending);
+        log.info("Migrated {} of {} legacy face encodings", migrated, pending.size());
+
+        // The gallery was loaded before the migration ran, so pick up the converted rows
+        faceGallery.addAll(pending.stream()
+            .filter(faceData -> faceData.getFaceEncoding() != null
+                && Boolean.TRUE.equals(faceData.getIsActive())
+                && faceData.getPerson().isActive())
+            .toList());
+    }
+}
@@ -0,0 +1,673 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.FaceData;
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.recognition.GalleryEntry;
+import com.facerecognition.recognition.GalleryMatch;
+import com.facerecognition.recognition.GallerySnapshot;
+import com.facerecognition.recognition.HnswIndex;
+import com.facerecognition.recognition.VectorMath;
+import com.facerecognition.repository.FaceDataRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident copy of every active face encoding, packed into one contiguous float array.
+ *
+ * Loaded once at startup and then kept in sync by the registration and deactivation
+ * paths, so matching never has to go through JPA. Removals swap the last slot into
+ * the hole to keep the storage dense.
+ *
+ * With face.recognition.index.type=hnsw an {@link HnswIndex} is maintained alongside
+ * the dense storage and used for lookups; the dense copy stays authoritative and is
+ * what the index is rebuilt from once too many entries have been soft-deleted.
+ *
+ * With face.recognition.snapshot.enabled the dense storage is written to a
+ * {@link GallerySnapshot} after every full load and on shutdown. At startup the
+ * snapshot is mapped and copied in bulk, then caught up with the database: rows
+ * added since it was written are read, and entries whose face data or person is
+ * no longer active are dropped. A missing or invalid snapshot falls back to a
+ * full load.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FaceGallery {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int DIM = FaceEncoding.DIMENSION;
+    // Batched exact scan tiles: 16 queries and 64 gallery rows are 16 KB and 64 KB of floats
+    private static final int QUERY_BLOCK = 16;
+    private static final int GALLERY_BLOCK = 64;
+
+    private final FaceDataRepository faceDataRepository;
+
+    @Value("${face.recognition.index.type:exact}")
+    private String indexType;
+
+    @Value("${face.recognition.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${face.recognition.hnsw.ef.construction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${face.recognition.hnsw.ef.search:64}")
+    private int hnswEfSearch;
+
+    @Value("${face.recognition.hnsw.rebuild.deleted.ratio:0.3}")
+    private double hnswRebuildDeletedRatio;
+
+    @Value("${face.recognition.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${face.recognition.snapshot.path:gallery/face-gallery.snapshot}")
+    private String snapshotPath;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotByFaceDataId = new HashMap<>();
+    private float[] vectors = new float[INITIAL_CAPACITY * DIM];
+    private long[] faceDataIds = new long[INITIAL_CAPACITY];
+    private long[] personIds = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private HnswIndex hnswIndex;
+    private final Map<Long, Integer> hnswNodeByFaceDataId = new HashMap<>();
+
+    private volatile String loadedFrom = "none";
+    private volatile long loadMillis;
+    private volatile int replayedEntries;
+
+    @PostConstruct
+    public void init() {
+        log.info("Face gallery index type: {}", indexType);
+        if (!snapshotEnabled || !loadSnapshot()) {
+            reload();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeSnapshot();
+    }
+
+    /**
+     * Rebuild the gallery from the database.
+     */
+    public void reload() {
+        long start = System.currentTimeMillis();
+        List<GalleryEntry> active = faceDataRepository.findGalleryEntries();
+
+        lock.writeLock().lock();
+        try {
+            slotByFaceDataId.clear();
+            size = 0;
+            hnswIndex = null;
+            for (GalleryEntry entry : active) {
+                addLocked(entry.getFaceDataId(), entry.getPersonId(), entry.getEncoding());
+            }
+            rebuildIndexLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loadedFrom = "database";
+        loadMillis = System.currentTimeMillis() - start;
+        replayedEntries = active.size();
+        log.info("Face gallery loaded {} encodings in {} ms", size(), loadMillis);
+        writeSnapshot();
+    }
+
+    /**
+     * Load the gallery from the snapshot file and catch up with the database.
+     *
+     * @return false if there is no usable snapshot
+     */
+    private boolean loadSnapshot() {
+        long start = System.currentTimeMillis();
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        GallerySnapshot snapshot;
+        try {
+            snapshot = GallerySnapshot.read(path, DIM);
+        } catch (IOException e) {
+            log.warn("Ignoring gallery snapshot {}: {}", path, e.getMessage());
+            return false;
+        }
+
+        // Ids still active among those the snapshot covers; anything else in it is stale
+        Set<Long> stillActive = new HashSet<>(faceDataRepository.findGalleryIdsUpTo(snapshot.maxFaceDataId()));
+        Set<Long> inSnapshot = new HashSet<>(snapshot.count() * 2);
+        for (int i = 0; i < snapshot.count(); i++) {
+            inSnapshot.add(snapshot.faceDataIds()[i]);
+        }
+        List<Long> missing = stillActive.stream().filter(id -> !inSnapshot.contains(id)).toList();
+        List<GalleryEntry> replay = new ArrayList<>(faceDataRepository.findGalleryEntriesAfter(snapshot.maxFaceDataId()));
+        if (!missing.isEmpty()) {
+            replay.addAll(faceDataRepository.findGalleryEntriesByIds(missing));
+        }
+
+        int dropped;
+        lock.writeLock().lock();
+        try {
+            slotByFaceDataId.clear();
+            hnswIndex = null;
+            size = 0;
+            ensureCapacity(snapshot.count());
+            System.arraycopy(snapshot.vectors(), 0, vectors, 0, snapshot.count() * DIM);
+            System.arraycopy(snapshot.faceDataIds(), 0, faceDataIds, 0, snapshot.count());
+            System.arraycopy(snapshot.personIds(), 0, personIds, 0, snapshot.count());
+            size = snapshot.count();
+            for (int slot = 0; slot < size; slot++) {
+                slotByFaceDataId.put(faceDataIds[slot], slot);
+            }
+            int before = size;
+            for (int slot = size - 1; slot >= 0; slot--) {
+                if (!stillActive.contains(faceDataIds[slot])) {
+                    removeSlotLocked(slot);
+                }
+            }
+            dropped = before - size;
+            for (GalleryEntry entry : replay) {
+                addLocked(entry.getFaceDataId(), entry.getPersonId(), entry.getEncoding());
+            }
+            rebuildIndexLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loadedFrom = "snapshot";
+        loadMillis = System.currentTimeMillis() - start;
+        replayedEntries = replay.size() + dropped;
+        log.info("Face gallery loaded {} encodings from snapshot {} in {} ms ({} added, {} dropped since it was written)",
+                 size(), path, loadMillis, replay.size(), dropped);
+        return true;
+    }
+
+    /**
+     * Write the current gallery to the snapshot file; failures are logged and otherwise ignored
+     */
+    public void writeSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        int count;
+        long[] ids;
+        long[] persons;
+        float[] packed;
+        lock.readLock().lock();
+        try {
+            count = size;
+            ids = Arrays.copyOf(faceDataIds, count);
+            persons = Arrays.copyOf(personIds, count);
+            packed = Arrays.copyOf(vectors, count * DIM);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long maxFaceDataId = Arrays.stream(ids).max().orElse(0L);
+        long start = System.currentTimeMillis();
+        try {
+            GallerySnapshot.write(Paths.get(snapshotPath), DIM, count, ids, persons, packed, maxFaceDataId);
+            log.info("Wrote gallery snapshot of {} encodings to {} in {} ms", count, snapshotPath, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.warn("Could not write gallery snapshot to {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("indexType", isApproximate() ? "hnsw" : "exact");
+        stats.put("loadedFrom", loadedFrom);
+        stats.put("loadMillis", loadMillis);
+        stats.put("replayedEntries", replayedEntries);
+        return stats;
+    }
+
+    /**
+     * Add newly saved face data. Inside a transaction the entries only become
+     * visible after commit, so a rolled back registration never matches.
+     */
+    public void addAll(List<FaceData> faceDataList) {
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (FaceData faceData : faceDataList) {
+                    addLocked(faceData.getId(), faceData.getPerson().getId(), faceData.getFaceEncoding());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Added {} encodings to face gallery, size now {}", faceDataList.size(), size());
+        });
+    }
+
+    public void add(FaceData faceData) {
+        addAll(List.of(faceData));
+    }
+
+    /**
+     * Drop every encoding belonging to a person, e.g. on deactivation.
+     */
+    public void removePerson(long personId) {
+        runAfterCommit(() -> {
+            int removed = 0;
+            lock.writeLock().lock();
+            try {
+                for (int slot = size - 1; slot >= 0; slot--) {
+                    if (personIds[slot] == personId) {
+                        removeSlotLocked(slot);
+                        removed++;
+                    }
+                }
+                if (hnswIndex != null && hnswIndex.deletedCount() > hnswIndex.size() * hnswRebuildDeletedRatio) {
+                    log.info("{} of {} HNSW nodes are deleted, rebuilding index", hnswIndex.deletedCount(), hnswIndex.size());
+                    rebuildIndexLocked();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Removed {} encodings of person {} from face gallery", removed, personId);
+        });
+    }
+
+    /**
+     * Best match over the gallery using the configured index, or null if the gallery is empty.
+     */
+    public GalleryMatch findBest(FaceEncoding query) {
+        lock.readLock().lock();
+        try {
+            if (hnswIndex != null) {
+                return findBestHnswLocked(query.values(), hnswEfSearch);
+            }
+            return findBestExactLocked(query.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to k best matches, best first.
+     */
+    public List<GalleryMatch> findTopK(FaceEncoding query, int k) {
+        lock.readLock().lock();
+        try {
+            if (hnswIndex != null) {
+                return findTopKHnswLocked(query.values(), k, hnswEfSearch);
+            }
+            return findTopKExactLocked(query.values(), k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top-k matches for several queries at once, in query order. The exact scan walks
+     * the gallery block by block and scores every query of the batch against a block
+     * while it is in cache, so the gallery is streamed from memory once per batch
+     * rather than once per query. HNSW lookups have no shared scan and run one by one.
+     */
+    public List<List<GalleryMatch>> findTopKBatch(List<FaceEncoding> queries, int k) {
+        lock.readLock().lock();
+        try {
+            if (hnswIndex != null) {
+                List<List<GalleryMatch>> results = new ArrayList<>(queries.size());
+                for (FaceEncoding query : queries) {
+                    results.add(findTopKHnswLocked(query.values(), k, hnswEfSearch));
+                }
+                return results;
+            }
+            return findTopKExactBatchLocked(queries, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isApproximate() {
+        return hnswIndex != null;
+    }
+
+    /**
+     * Compare HNSW against exact scan on the current gallery: top-1 recall and
+     * per-query latency. Queries are gallery entries with a little noise added,
+     * which approximates a fresh capture of an enrolled face.
+     */
+    public Map<String, Object> indexReport(int queryCount, int efSearch, long seed) {
+        if (queryCount < 1) {
+            throw new IllegalArgumentException("queryCount must be at least 1");
+        }
+        // HNSW mode reports on the live index, which only changes under the write lock
+        lock.readLock().lock();
+        int count;
+        float[] galleryVectors;
+        long[] galleryIds;
+        try {
+            if (hnswIndex != null || size == 0) {
+                return indexReport(hnswIndex, 0, vectors, faceDataIds, size, queryCount, efSearch, seed);
+            }
+            count = size;
+            galleryVectors = Arrays.copyOf(vectors, count * DIM);
+            galleryIds = Arrays.copyOf(faceDataIds, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Exact mode: build a throwaway index from a copy, without blocking registrations
+        long start = System.nanoTime();
+        HnswIndex index = buildIndex(galleryVectors, galleryIds, count);
+        return indexReport(index, System.nanoTime() - start, galleryVectors, galleryIds, count, queryCount, efSearch, seed);
+    }
+
+    private Map<String, Object> indexReport(HnswIndex index, long buildNanos, float[] galleryVectors, long[] galleryIds,
+                                            int count, int queryCount, int efSearch, long seed) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        Random random = new Random(seed);
+        report.put("gallerySize", count);
+        report.put("indexType", indexType);
+        if (count == 0) {
+            report.put("message", "Gallery is empty");
+            return report;
+        }
+
+        int hits = 0;
+        long[] exactNanos = new long[queryCount];
+        long[] hnswNanos = new long[queryCount];
+        float[] query = new float[DIM];
+        for (int q = 0; q < queryCount; q++) {
+            int source = random.nextInt(count);
+            for (int i = 0; i < DIM; i++) {
+                query[i] = galleryVectors[source * DIM + i] + (float) (random.nextGaussian() * 0.01);
+            }
+            float[] normalized = FaceEncoding.fromIntensities(query.clone()).values();
+
+            long start = System.nanoTime();
+            int exactSlot = bestSlot(normalized, galleryVectors, count);
+            exactNanos[q] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<HnswIndex.Candidate> approximate = index.search(normalized, 1, efSearch);
+            hnswNanos[q] = System.nanoTime() - start;
+
+            if (!approximate.isEmpty() && index.key(approximate.get(0).node()) == galleryIds[exactSlot]) {
+                hits++;
+            }
+        }
+
+        report.put("queries", queryCount);
+        report.put("efSearch", efSearch);
+        report.put("m", hnswM);
+        report.put("recallAt1", (double) hits / queryCount);
+        report.put("exactLatencyMicros", latencySummary(exactNanos));
+        report.put("hnswLatencyMicros", latencySummary(hnswNanos));
+        if (buildNanos > 0) {
+            report.put("hnswBuildMillis", buildNanos / 1_000_000);
+        }
+        return report;
+    }
+
+    private static int bestSlot(float[] q, float[] galleryVectors, int count) {
+        int bestSlot = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int slot = 0, offset = 0; slot < count; slot++, offset += DIM) {
+            float score = VectorMath.dot(q, 0, galleryVectors, offset, DIM);
+            if (score > bestScore) {
+                bestScore = score;
+                bestSlot = slot;
+            }
+        }
+        return bestSlot;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private GalleryMatch findBestExactLocked(float[] q) {
+        int bestSlot = -1;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int slot = 0, offset = 0; slot < size; slot++, offset += DIM) {
+            float score = VectorMath.dot(q, 0, vectors, offset, DIM);
+            if (score > bestScore) {
+                bestScore = score;
+                bestSlot = slot;
+            }
+        }
+        if (bestSlot < 0) {
+            return null;
+        }
+        return new GalleryMatch(faceDataIds[bestSlot], personIds[bestSlot], Math.max(0.0f, bestScore));
+    }
+
+    private GalleryMatch findBestHnswLocked(float[] q, int efSearch) {
+        List<HnswIndex.Candidate> candidates = hnswIndex.search(q, 1, efSearch);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        HnswIndex.Candidate best = candidates.get(0);
+        long faceDataId = hnswIndex.key(best.node());
+        Integer slot = slotByFaceDataId.get(faceDataId);
+        if (slot == null) {
+            return null;
+        }
+        return new GalleryMatch(faceDataId, personIds[slot], Math.max(0.0f, best.similarity()));
+    }
+
+    private List<GalleryMatch> findTopKExactLocked(float[] q, int k) {
+        int limit = Math.min(k, size);
+        if (limit <= 0) {
+            return List.of();
+        }
+        // Small sorted insertion buffer; k is a handful so this beats a heap
+        int[] topSlots = new int[limit];
+        float[] topScores = new float[limit];
+        Arrays.fill(topScores, Float.NEGATIVE_INFINITY);
+        for (int slot = 0, offset = 0; slot < size; slot++, offset += DIM) {
+            offerTopK(topSlots, topScores, slot, VectorMath.dot(q, 0, vectors, offset, DIM));
+        }
+        return toMatchesLocked(topSlots, topScores);
+    }
+
+    private List<List<GalleryMatch>> findTopKExactBatchLocked(List<FaceEncoding> queries, int k) {
+        int count = queries.size();
+        int limit = Math.min(k, size);
+        List<List<GalleryMatch>> results = new ArrayList<>(count);
+        if (limit <= 0) {
+            for (int q = 0; q < count; q++) {
+                results.add(List.of());
+            }
+            return results;
+        }
+
+        float[][] queryValues = new float[count][];
+        int[][] topSlots = new int[count][limit];
+        float[][] topScores = new float[count][limit];
+        for (int q = 0; q < count; q++) {
+            queryValues[q] = queries.get(q).values();
+            Arrays.fill(topScores[q], Float.NEGATIVE_INFINITY);
+        }
+
+        // Query block x gallery block: both tiles stay in L1/L2 while they are scored against each other
+        for (int queryStart = 0; queryStart < count; queryStart += QUERY_BLOCK) {
+            int queryEnd = Math.min(count, queryStart + QUERY_BLOCK);
+            for (int blockStart = 0; blockStart < size; blockStart += GALLERY_BLOCK) {
+                int blockEnd = Math.min(size, blockStart + GALLERY_BLOCK);
+                for (int q = queryStart; q < queryEnd; q++) {
+                    float[] query = queryValues[q];
+                    for (int slot = blockStart, offset = blockStart * DIM; slot < blockEnd; slot++, offset += DIM) {
+                        offerTopK(topSlots[q], topScores[q], slot, VectorMath.dot(query, 0, vectors, offset, DIM));
+                    }
+                }
+            }
+        }
+
+        for (int q = 0; q < count; q++) {
+            results.add(toMatchesLocked(topSlots[q], topScores[q]));
+        }
+        return results;
+    }
+
+    private static void offerTopK(int[] topSlots, float[] topScores, int slot, float score) {
+        int limit = topScores.length;
+        if (score <= topScores[limit - 1]) {
+            return;
+        }
+        int i = limit - 1;
+        while (i > 0 && topScores[i - 1] < score) {
+            topScores[i] = topScores[i - 1];
+            topSlots[i] = topSlots[i - 1];
+            i--;
+        }
+        topScores[i] = score;
+        topSlots[i] = slot;
+    }
+
+    private List<GalleryMatch> toMatchesLocked(int[] topSlots, float[] topScores) {
+        List<GalleryMatch> matches = new ArrayList<>(topSlots.length);
+        for (int i = 0; i < topSlots.length; i++) {
+            int slot = topSlots[i];
+            matches.add(new GalleryMatch(faceDataIds[slot], personIds[slot], Math.max(0.0f, topScores[i])));
+        }
+        return matches;
+    }
+
+    private List<GalleryMatch> findTopKHnswLocked(float[] q, int k, int efSearch) {
+        List<GalleryMatch> matches = new ArrayList<>(k);
+        for (HnswIndex.Candidate candidate : hnswIndex.search(q, k, efSearch)) {
+            long faceDataId = hnswIndex.key(candidate.node());
+            Integer slot = slotByFaceDataId.get(faceDataId);
+            if (slot != null) {
+                matches.add(new GalleryMatch(faceDataId, personIds[slot], Math.max(0.0f, candidate.similarity())));
+            }
+        }
+        return matches;
+    }
+
+    private void rebuildIndexLocked() {
+        hnswNodeByFaceDataId.clear();
+        hnswIndex = null;
+        if ("hnsw".equalsIgnoreCase(indexType)) {
+            long start = System.currentTimeMillis();
+            hnswIndex = buildIndexLocked();
+            for (int node = 0; node < hnswIndex.size(); node++) {
+                hnswNodeByFaceDataId.put(hnswIndex.key(node), node);
+            }
+            log.info("Built HNSW index over {} encodings in {} ms (M={}, efConstruction={})",
+                     size, System.currentTimeMillis() - start, hnswM, hnswEfConstruction);
+        }
+    }
+
+    private HnswIndex buildIndexLocked() {
+        return buildIndex(vectors, faceDataIds, size);
+    }
+
+    private HnswIndex buildIndex(float[] galleryVectors, long[] galleryIds, int count) {
+        HnswIndex index = new HnswIndex(DIM, hnswM, hnswEfConstruction, 42L);
+        for (int slot = 0; slot < count; slot++) {
+            index.insert(galleryIds[slot], galleryVectors, slot * DIM);
+        }
+        return index;
+    }
+
+    private static Map<String, Object> latencySummary(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("mean", Math.round(mean / 1000.0));
+        summary.put("p50", sorted[sorted.length / 2] / 1000);
+        summary.put("p99", sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1000);
+        return summary;
+    }
+
+    private void addLocked(long faceDataId, long personId, FaceEncoding encoding) {
+        if (encoding == null) {
+            log.warn("Face data {} has no encoding, not adding it to the gallery", faceDataId);
+            return;
+        }
+        Integer existing = slotByFaceDataId.get(faceDataId);
+        int slot = existing != null ? existing : size;
+        if (existing == null) {
+            ensureCapacity(size + 1);
+            size++;
+        }
+        System.arraycopy(encoding.values(), 0, vectors, slot * DIM, DIM);
+        faceDataIds[slot] = faceDataId;
+        personIds[slot] = personId;
+        slotByFaceDataId.put(faceDataId, slot);
+
+        if (hnswIndex != null) {
+            Integer previousNode = hnswNodeByFaceDataId.get(faceDataId);
+            if (previousNode != null) {
+                hnswIndex.markDeleted(previousNode);
+            }
+            hnswNodeByFaceDataId.put(faceDataId, hnswIndex.insert(faceDataId, encoding.values(), 0));
+        }
+    }
+
+    private void removeSlotLocked(int slot) {
+        int last = size - 1;
+        slotByFaceDataId.remove(faceDataIds[slot]);
+        if (hnswIndex != null) {
+            Integer node = hnswNodeByFaceDataId.remove(faceDataIds[slot]);
+            if (node != null) {
+                hnswIndex.markDeleted(node);
+            }
+        }
+        if (slot != last) {
+            System.arraycopy(vectors, last * DIM, vectors, slot * DIM, DIM);
+            faceDataIds[slot] = faceDataIds[last];
+            personIds[slot] = personIds[last];
+            slotByFaceDataId.put(faceDataIds[slot], slot);
+        }
+        size = last;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= faceDataIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, faceDataIds.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * DIM);
+        faceDataIds = Arrays.copyOf(faceDataIds, capacity);
+        personIds = Arrays.copyOf(personIds, capacity);
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.facerecognition.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for registered face images.
+ *
+ * Images are kept as the raw uploaded bytes under face.images.blob.path, named
+ * by their SHA-256 and fanned out over two directory levels (ab/cd/abcd...).
+ * face_data rows only carry the hash, so reading face data never pulls image
+ * payloads out of the database. Storing the same image twice keeps one file.
+ */
+@Service
+@Slf4j
+public class FaceImageStore {
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public FaceImageStore(@Value("${face.images.blob.path:uploads/blobs/}") String blobPath) {
+        this.root = Paths.get(blobPath);
+    }
+
+    /**
+     * Store the bytes unless an identical image is already present
+     *
+     * @return lowercase hex SHA-256 of the bytes
+     */
+    public String put(byte[] bytes) throws IOException {
+        String hash = sha256(bytes);
+        Path target = pathOf(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        Files.createDirectories(target.getParent());
+        // Write beside the target and move into place, so a reader never sees a partial file
+        Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Stored face image {} ({} bytes)", hash, bytes.length);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another registration; the content is the same
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return hash;
+    }
+
+    public Optional<byte[]> get(String hash) throws IOException {
+        if (!isValidHash(hash)) {
+            return Optional.empty();
+        }
+        Path path = pathOf(hash);
+        return Files.exists(path) ? Optional.of(Files.readAllBytes(path)) : Optional.empty();
+    }
+
+    public Path pathOf(String hash) {
+        if (!isValidHash(hash)) {
+            throw new IllegalArgumentException("Not a SHA-256 hex digest: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && SHA256_HEX.matcher(hash).matches();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
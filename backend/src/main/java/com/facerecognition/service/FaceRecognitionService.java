@@ -2,21 +2,30 @@ package com.facerecognition.service;
 
 import com.facerecognition.model.FaceData;
 import com.facerecognition.model.Person;
+import com.facerecognition.recognition.CascadeDetectorPool;
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.recognition.FaceTracker;
+import com.facerecognition.recognition.FrameAnalysis;
+import com.facerecognition.recognition.GalleryEntry;
+import com.facerecognition.recognition.GalleryMatch;
+import com.facerecognition.recognition.MatBuffers;
+import com.facerecognition.recognition.MatScope;
+import com.facerecognition.recognition.MatchResult;
 import com.facerecognition.repository.FaceDataRepository;
+import com.facerecognition.repository.PersonRepository;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nu.pattern.OpenCV;
 import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
-import org.opencv.objdetect.CascadeClassifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.awt.*;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -25,14 +34,17 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.stream.Collectors;
 
-import org.apache.commons.text.similarity.JaroWinklerSimilarity;
-
-import net.coobird.thumbnailator.Thumbnails;
 
 @Service
 @RequiredArgsConstructor
@@ -40,10 +52,18 @@ import net.coobird.thumbnailator.Thumbnails;
 public class FaceRecognitionService {
 
     private final FaceDataRepository faceDataRepository;
+    private final PersonRepository personRepository;
+    private final FaceGallery faceGallery;
+    private final GalleryMatchBatcher galleryMatchBatcher;
+    private final FaceTrackingService faceTrackingService;
+    private final FaceImageStore faceImageStore;
     
-    @Value("${face.recognition.threshold:0.6}")
+    @Value("${face.recognition.threshold:0.8}")
     private double recognitionThreshold;
 
+    @Value("${face.recognition.top.k:5}")
+    private int topK;
+
     @Value("${face.images.upload.path:uploads/faces/}")
     private String uploadPath;
 
@@ -74,7 +94,32 @@ public class FaceRecognitionService {
     @Value("${face.detection.debug.enabled:true}")
     private boolean debugEnabled;
     
-    private CascadeClassifier faceDetector;
+    // Longest side of the frame the cascade runs on; 0 disables downscaling
+    @Value("${face.detection.working.max.dimension:640}")
+    private int workingMaxDimension;
+
+    // 0 means one detector per available processor
+    @Value("${face.detection.pool.size:0}")
+    private int detectorPoolSize;
+    
+    // Smallest face searched for, as a fraction of the frame height; lower it for crowded, wide shots
+    @Value("${face.detection.min.face.ratio:0.2}")
+    private double minFaceRatio;
+
+    @Value("${face.detection.max.faces:10}")
+    private int maxFacesPerFrame;
+    
+    private CascadeDetectorPool detectorPool;
+
+    // Per-face encoding and matching of multi-face frames; idle workers retire, so they release their MatBuffers as they go
+    private final ForkJoinPool encodingPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+        pool -> new ForkJoinWorkerThread(pool) {
+            @Override
+            protected void onTermination(Throwable exception) {
+                MatBuffers.releaseCurrentThread();
+                super.onTermination(exception);
+            }
+        }, null, false);
     
     @PostConstruct
     public void init() {
@@ -95,6 +140,11 @@ public class FaceRecognitionService {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        encodingPool.shutdown();
+    }
+
     private void initializeFaceDetector() throws IOException {
         // Extract cascade file from resources to temporary location
         InputStream cascadeStream = getClass().getClassLoader()
@@ -109,16 +159,12 @@ public class FaceRecognitionService {
         Files.copy(cascadeStream, tempCascadeFile, StandardCopyOption.REPLACE_EXISTING);
         cascadeStream.close();
 
-        // Initialize cascade classifier
+        // Load one classifier per worker from the extracted file; instances are not shared between threads
         String cascadePath = tempCascadeFile.toAbsolutePath().toString();
-        log.info("Loading cascade classifier from: {}", cascadePath);
-
-        faceDetector = new CascadeClassifier(cascadePath);
+        int poolSize = detectorPoolSize > 0 ? detectorPoolSize : Runtime.getRuntime().availableProcessors();
+        log.info("Loading {} cascade classifiers from: {}", poolSize, cascadePath);
 
-        // Validate that the classifier loaded successfully
-        if (faceDetector.empty()) {
-            throw new RuntimeException("Failed to load cascade classifier from: " + cascadePath);
-        }
+        detectorPool = new CascadeDetectorPool(cascadePath, poolSize);
 
         log.info("Face detector initialized successfully");
 
@@ -126,80 +172,131 @@ public class FaceRecognitionService {
         tempCascadeFile.toFile().deleteOnExit();
     }
     
-    public String saveImageFromBase64(String base64Image, String personId) throws IOException {
-        log.info("--- Starting Image Conversion Process from Base64 for person ID: {} ---", personId);
-
+    /**
+     * Decode a Base64 image string, with or without a data URL prefix, to the raw image bytes
+     */
+    public byte[] decodeBase64Image(String base64Image) throws IOException {
         if (base64Image == null || base64Image.isEmpty()) {
             throw new IOException("Input Base64 image string is empty.");
         }
 
         // The Base64 string may have a prefix like "data:image/jpeg;base64,". We need to remove it.
-        String pureBase64 = base64Image.contains(",") ? base64Image.substring(base64Image.indexOf(",") + 1) : base64Image;
-        byte[] imageBytes = Base64.getDecoder().decode(pureBase64);
+        int comma = base64Image.indexOf(',');
+        byte[] imageBytes;
+        try {
+            imageBytes = comma >= 0
+                ? Base64.getDecoder().decode(base64Image.substring(comma + 1))
+                : Base64.getDecoder().decode(base64Image);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Base64 image data: " + e.getMessage(), e);
+        }
 
         if (imageBytes.length == 0) {
             throw new IOException("Decoded byte array is empty.");
         }
+        return imageBytes;
+    }
+
+    /**
+     * Decode compressed image bytes straight into a BGR Mat, without a round-trip through disk
+     */
+    public Mat decodeImage(byte[] imageBytes) throws IOException {
+        Mat image;
+        try (MatBuffers buffers = MatBuffers.acquire()) {
+            image = Imgcodecs.imdecode(buffers.encoded(imageBytes), Imgcodecs.IMREAD_COLOR);
+        }
+        if (image.empty()) {
+            image.release();
+            throw new IOException("Could not decode image data (" + imageBytes.length + " bytes)");
+        }
+        return image;
+    }
 
-        String fileName = "person_" + personId + "_" + System.currentTimeMillis() + "_converted.jpg";
+    /**
+     * Persist the original image bytes exactly as received (no re-encode) and return the file path
+     */
+    public String saveImageBytes(byte[] imageBytes, String prefix) throws IOException {
+        // Pipeline workers save frames concurrently, so the name must not depend on the clock alone
+        String fileName = prefix + "_" + System.currentTimeMillis() + "_" + UUID.randomUUID() + imageExtension(imageBytes);
         Path filePath = Paths.get(uploadPath, fileName);
         Files.createDirectories(filePath.getParent());
+        Files.write(filePath, imageBytes);
+        log.info("Saved original image bytes. Path: {}, Size: {} bytes", filePath, imageBytes.length);
+        return filePath.toString();
+    }
 
-        try (InputStream inputStream = new ByteArrayInputStream(imageBytes)) {
-            Thumbnails.of(inputStream)
-                .scale(1.0)
-                .outputFormat("jpg")
-                .toFile(filePath.toFile());
-
-            long fileSize = Files.size(filePath);
-            if (fileSize == 0) {
-                log.error("Thumbnailator created a zero-byte file from Base64 data.");
-                throw new IOException("Failed to save image; output file is empty.");
-            }
-
-            log.info("Successfully saved image from Base64 data. Path: {}, Size: {} bytes", filePath, fileSize);
-            return filePath.toString();
-
-        } catch (Exception e) {
-            log.error("--- EXCEPTION during Thumbnailator Base64 Conversion ---", e);
-            throw new IOException("Critical error during Base64 image processing: " + e.getMessage(), e);
+    private static String imageExtension(byte[] bytes) {
+        if (bytes.length > 3 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8) {
+            return ".jpg";
         }
+        if (bytes.length > 8 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return ".png";
+        }
+        if (bytes.length > 2 && bytes[0] == 'B' && bytes[1] == 'M') {
+            return ".bmp";
+        }
+        if (bytes.length > 12 && bytes[8] == 'W' && bytes[9] == 'E' && bytes[10] == 'B' && bytes[11] == 'P') {
+            return ".webp";
+        }
+        return ".img";
     }
     
     public List<Rect> detectFaces(String imagePath) {
-        // Validate face detector is initialized
-        if (faceDetector == null || faceDetector.empty()) {
-            log.error("Face detector is not properly initialized");
-            return new ArrayList<>();
+        try (MatScope scope = new MatScope()) {
+            Mat image = scope.add(Imgcodecs.imread(imagePath));
+            if (image.empty()) {
+                log.error("Could not load image: {}", imagePath);
+                return new ArrayList<>();
+            }
+            return detectFaces(image, imagePath);
         }
+    }
 
-        Mat image = Imgcodecs.imread(imagePath);
-        if (image.empty()) {
-            log.error("Could not load image: {}", imagePath);
+    public List<Rect> detectFaces(Mat image, String imagePath) {
+        // Validate face detector is initialized
+        if (detectorPool == null) {
+            log.error("Face detector is not properly initialized");
             return new ArrayList<>();
         }
 
         log.info("Processing image: {} (size: {}x{})", imagePath, image.width(), image.height());
 
-        Mat grayImage = new Mat();
-        Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
+        try (MatBuffers buffers = MatBuffers.acquire()) {
+            // Detect on a grayscale copy shrunk to the working resolution; rects are mapped back afterwards
+            double scale = workingScale(image);
+            Mat grayImage = toWorkingGray(image, scale, buffers);
 
-        // Apply histogram equalization to improve contrast
-        Mat equalizedImage = new Mat();
-        Imgproc.equalizeHist(grayImage, equalizedImage);
+            // Apply histogram equalization to improve contrast
+            Mat equalizedImage = buffers.equalized;
+            Imgproc.equalizeHist(grayImage, equalizedImage);
+
+            List<Rect> detectedFaces = detectFacesStandard(equalizedImage, buffers.detections, scale, image, imagePath);
+
+            // If no faces detected with standard parameters, try more aggressive detection
+            if (detectedFaces.isEmpty()) {
+                log.info("No faces detected with standard parameters, trying more aggressive detection...");
+                detectedFaces = detectFacesAggressive(equalizedImage, buffers.detections, scale, image, imagePath);
+            }
+
+            return detectedFaces;
+        }
+    }
 
-        MatOfRect faceDetections = new MatOfRect();
+    private List<Rect> detectFacesStandard(Mat equalizedImage, MatOfRect faceDetections, double scale, Mat image, String imagePath) {
         try {
             // Use configurable parameters for face detection
-            faceDetector.detectMultiScale(
-                equalizedImage,
-                faceDetections,
-                scaleFactor,        // configurable scaleFactor
-                minNeighbors,       // configurable minNeighbors
-                0,                  // flags
-                new Size(minSizeWidth, minSizeHeight),  // configurable minSize
-                new Size()          // maxSize (no limit)
-            );
+            detectorPool.withDetector(detector -> {
+                detector.detectMultiScale(
+                    equalizedImage,
+                    faceDetections,
+                    scaleFactor,        // configurable scaleFactor
+                    minNeighbors,       // configurable minNeighbors
+                    0,                  // flags
+                    scaledMinSize(minSizeWidth, minSizeHeight, scale),  // configurable minSize
+                    new Size()          // maxSize (no limit)
+                );
+                return null;
+            });
 
             Rect[] faces = faceDetections.toArray();
             log.info("Detected {} faces in image: {}", faces.length, imagePath);
@@ -216,31 +313,24 @@ public class FaceRecognitionService {
             return new ArrayList<>();
         }
 
-        List<Rect> detectedFaces = List.of(faceDetections.toArray());
-
-        // If no faces detected with standard parameters, try more aggressive detection
-        if (detectedFaces.isEmpty()) {
-            log.info("No faces detected with standard parameters, trying more aggressive detection...");
-            detectedFaces = detectFacesAggressive(equalizedImage, imagePath);
-        }
-
-        return detectedFaces;
+        return toFullResolution(faceDetections.toArray(), scale, image);
     }
 
-    private List<Rect> detectFacesAggressive(Mat grayImage, String imagePath) {
-        MatOfRect faceDetections = new MatOfRect();
-
+    private List<Rect> detectFacesAggressive(Mat grayImage, MatOfRect faceDetections, double scale, Mat fullImage, String imagePath) {
         try {
             // More aggressive configurable parameters
-            faceDetector.detectMultiScale(
-                grayImage,
-                faceDetections,
-                aggressiveScaleFactor,       // configurable aggressive scaleFactor
-                aggressiveMinNeighbors,      // configurable aggressive minNeighbors
-                0,                           // flags
-                new Size(aggressiveMinSizeWidth, aggressiveMinSizeHeight),  // configurable aggressive minSize
-                new Size()                   // maxSize (no limit)
-            );
+            detectorPool.withDetector(detector -> {
+                detector.detectMultiScale(
+                    grayImage,
+                    faceDetections,
+                    aggressiveScaleFactor,       // configurable aggressive scaleFactor
+                    aggressiveMinNeighbors,      // configurable aggressive minNeighbors
+                    0,                           // flags
+                    scaledMinSize(aggressiveMinSizeWidth, aggressiveMinSizeHeight, scale),  // configurable aggressive minSize
+                    new Size()                   // maxSize (no limit)
+                );
+                return null;
+            });
 
             Rect[] faces = faceDetections.toArray();
             log.info("Aggressive detection found {} faces in image: {}", faces.length, imagePath);
@@ -258,56 +348,358 @@ public class FaceRecognitionService {
             return new ArrayList<>();
         }
 
-        return List.of(faceDetections.toArray());
+        return toFullResolution(faceDetections.toArray(), scale, fullImage);
+    }
+
+    /**
+     * Factor that brings the longer side of the frame down to face.detection.working.max.dimension (never upscales)
+     */
+    private double workingScale(Mat image) {
+        int longestSide = Math.max(image.width(), image.height());
+        if (workingMaxDimension <= 0 || longestSide <= workingMaxDimension) {
+            return 1.0;
+        }
+        return (double) workingMaxDimension / longestSide;
+    }
+
+    /**
+     * Grayscale copy at the working resolution, written into the thread's buffers
+     */
+    private Mat toWorkingGray(Mat image, double scale, MatBuffers buffers) {
+        Imgproc.cvtColor(image, buffers.gray, Imgproc.COLOR_BGR2GRAY);
+        if (scale >= 1.0) {
+            return buffers.gray;
+        }
+        Imgproc.resize(buffers.gray, buffers.reduced, new Size(), scale, scale, Imgproc.INTER_AREA);
+        return buffers.reduced;
+    }
+
+    private static Size scaledMinSize(int width, int height, double scale) {
+        return new Size(Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)));
+    }
+
+    /**
+     * Map rects found on the working-resolution frame back onto the full-resolution frame
+     */
+    private static List<Rect> toFullResolution(Rect[] rects, double scale, Mat fullImage) {
+        List<Rect> mapped = new ArrayList<>(rects.length);
+        for (Rect rect : rects) {
+            mapped.add(toFullResolution(rect, scale, fullImage));
+        }
+        return mapped;
+    }
+
+    private static Rect toFullResolution(Rect rect, double scale, Mat fullImage) {
+        if (scale >= 1.0) {
+            return rect;
+        }
+        int x = (int) Math.floor(rect.x / scale);
+        int y = (int) Math.floor(rect.y / scale);
+        int right = Math.min(fullImage.width(), (int) Math.ceil((rect.x + rect.width) / scale));
+        int bottom = Math.min(fullImage.height(), (int) Math.ceil((rect.y + rect.height) / scale));
+        return new Rect(x, y, right - x, bottom - y);
     }
     
-    public String extractFaceEncoding(String imagePath) {
-        Mat image = loadImage(imagePath);
-        if (image.empty()) {
-            log.error("Cannot load image from path: {}", imagePath);
+    public FaceEncoding extractFaceEncoding(String imagePath) {
+        try (MatScope scope = new MatScope()) {
+            Mat image = scope.add(loadImage(imagePath));
+            if (image.empty()) {
+                log.error("Cannot load image from path: {}", imagePath);
+                return null;
+            }
+            return extractFaceEncoding(image, imagePath);
+        }
+    }
+
+    public FaceEncoding extractFaceEncoding(Mat image, String imageLabel) {
+        log.info("Processing image: {} (size: {}x{})", imageLabel, image.width(), image.height());
+
+        Rect faceRect = detectLargestFace(image);
+        if (faceRect == null) {
             return null;
         }
-        log.info("Processing image: {} (size: {}x{})", imagePath, image.width(), image.height());
+        return encodeFaceRegion(image, faceRect);
+    }
+
+    /**
+     * Recognise the main face of an image in a single pass: one decode, one
+     * detection, one encoding and one gallery lookup.
+     */
+    public MatchResult recognize(String imagePath) {
+        long start = System.nanoTime();
+        try (MatScope scope = new MatScope()) {
+            Mat image = scope.add(loadImage(imagePath));
+            double decodeMillis = elapsedMillis(start);
+            if (image.empty()) {
+                log.error("Cannot load image from path: {}", imagePath);
+                return MatchResult.noFace(decodeMillis, 0);
+            }
+            return recognize(image, imagePath, decodeMillis);
+        }
+    }
+
+    /**
+     * Same as {@link #recognize(String)} for an image that is already decoded in memory
+     */
+    public MatchResult recognize(Mat image, String imageLabel, double decodeMillis) {
+        long start = System.nanoTime();
+        Rect faceRect = detectLargestFace(image);
+        double detectMillis = elapsedMillis(start);
+        if (faceRect == null) {
+            return MatchResult.noFace(decodeMillis, detectMillis);
+        }
+        return recognizeFace(image, faceRect, imageLabel, decodeMillis, detectMillis);
+    }
+
+    /**
+     * Recognise every face in the frame (largest first, up to face.detection.max.faces).
+     * Faces are encoded and matched in parallel; an empty list means no face was found.
+     */
+    public List<MatchResult> recognizeAll(Mat image, String imageLabel, double decodeMillis) {
+        return recognizeAll(image, imageLabel, decodeMillis, null);
+    }
 
-        MatOfRect faces = new MatOfRect();
+    /**
+     * Like {@link #recognizeAll(Mat, String, double)}, but faces that continue a track of the
+     * camera reuse the track's identity and only new or due-for-reverification faces are
+     * encoded and matched.
+     */
+    public List<MatchResult> recognizeAll(Mat image, String imageLabel, double decodeMillis, String cameraId) {
+        FrameAnalysis frame = detectFrame(image, cameraId, decodeMillis);
+        encodeFrame(image, frame, imageLabel);
+        return matchFrame(frame, imageLabel);
+    }
+
+    /**
+     * Detect step: find the faces of the frame and, for a tracked camera, assign them to tracks
+     */
+    public FrameAnalysis detectFrame(Mat image, String cameraId, double decodeMillis) {
+        long start = System.nanoTime();
+        List<Rect> faces = detectAllFaces(image);
+        double detectMillis = elapsedMillis(start);
+
+        FaceTracker tracker = faces.isEmpty() ? null : faceTrackingService.trackerFor(cameraId);
+        long now = System.currentTimeMillis();
+        List<FaceTracker.Assignment> assignments = tracker != null ? tracker.assign(faces, now) : null;
+        return new FrameAnalysis(faces, tracker, assignments, now, decodeMillis, detectMillis);
+    }
+
+    /**
+     * Encode step: encode every face that needs recognition, in parallel when there are several
+     */
+    public void encodeFrame(Mat image, FrameAnalysis frame, String imageLabel) {
+        List<Integer> pending = frame.facesToRecognize();
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (pending.size() == 1) {
+            encodeFace(image, frame, pending.get(0));
+            return;
+        }
+
+        try {
+            encodingPool.submit(() -> pending.parallelStream().forEach(face -> encodeFace(image, frame, face))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while encoding faces in " + imageLabel, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Face encoding failed for " + imageLabel, e.getCause());
+        }
+    }
+
+    private void encodeFace(Mat image, FrameAnalysis frame, int face) {
+        long start = System.nanoTime();
+        FaceEncoding encoding = encodeFaceRegion(image, frame.getFaces().get(face));
+        frame.setEncoding(face, encoding, elapsedMillis(start));
+    }
+
+    /**
+     * Match step: look up the encoded faces in the gallery and fill in tracked faces from
+     * their track. Results are in face order; an empty list means no face was found.
+     */
+    public List<MatchResult> matchFrame(FrameAnalysis frame, String imageLabel) {
+        // Submit every face first so they can share a gallery batch with each other and other cameras
+        long start = System.nanoTime();
+        List<CompletableFuture<List<GalleryMatch>>> lookups = new ArrayList<>(frame.faceCount());
+        for (int i = 0; i < frame.faceCount(); i++) {
+            lookups.add(frame.needsRecognition(i) ? galleryMatchBatcher.submit(frame.encoding(i), topK) : null);
+        }
+
+        List<MatchResult> results = new ArrayList<>(frame.faceCount());
+        for (int i = 0; i < frame.faceCount(); i++) {
+            Rect faceRect = frame.getFaces().get(i);
+            MatchResult result;
+            if (frame.needsRecognition(i)) {
+                List<GalleryMatch> candidates = lookups.get(i).join();
+                result = toMatchResult(candidates, faceRect, imageLabel, frame.getDecodeMillis(),
+                        frame.getDetectMillis(), frame.encodeMillis(i), elapsedMillis(start));
+                if (frame.isTracked()) {
+                    FaceTracker.Assignment assignment = frame.assignment(i);
+                    result = result.toBuilder().trackId(assignment.getTrack().getId()).build();
+                    frame.getTracker().recordRecognition(assignment.getTrack(), result, frame.getTimestampMillis());
+                }
+            } else {
+                // Same identity as last time; only the box and frame timings are new
+                result = frame.assignment(i).getCachedResult().toBuilder()
+                    .faceX(faceRect.x)
+                    .faceY(faceRect.y)
+                    .faceWidth(faceRect.width)
+                    .faceHeight(faceRect.height)
+                    .decodeMillis(frame.getDecodeMillis())
+                    .detectMillis(frame.getDetectMillis())
+                    .encodeMillis(0)
+                    .matchMillis(0)
+                    .tracked(true)
+                    .build();
+            }
+            if (frame.isTracked()) {
+                faceTrackingService.recordRecognition(!frame.needsRecognition(i));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * One pass of an encoded frame through decode, detect, encode and match, for warm-up.
+     * Encode and match run on the centre of the frame whether or not a face was found,
+     * and nothing is tracked or recorded.
+     */
+    public void warmUp(byte[] encodedFrame) throws IOException {
+        try (MatScope scope = new MatScope()) {
+            Mat image = scope.add(decodeImage(encodedFrame));
+            detectAllFaces(image);
+            int side = Math.min(image.width(), image.height()) / 2;
+            Rect centre = new Rect((image.width() - side) / 2, (image.height() - side) / 2, side, side);
+            galleryMatchBatcher.findTopK(encodeFaceRegion(image, centre), topK);
+        }
+    }
+
+    private MatchResult recognizeFace(Mat image, Rect faceRect, String imageLabel, double decodeMillis, double detectMillis) {
+        long start = System.nanoTime();
+        FaceEncoding encoding = encodeFaceRegion(image, faceRect);
+        double encodeMillis = elapsedMillis(start);
+        return matchEncoding(encoding, faceRect, imageLabel, decodeMillis, detectMillis, encodeMillis);
+    }
+
+    private MatchResult matchEncoding(FaceEncoding encoding, Rect faceRect, String imageLabel,
+                                      double decodeMillis, double detectMillis, double encodeMillis) {
+        long start = System.nanoTime();
+        List<GalleryMatch> candidates = galleryMatchBatcher.findTopK(encoding, topK);
+        return toMatchResult(candidates, faceRect, imageLabel, decodeMillis, detectMillis, encodeMillis, elapsedMillis(start));
+    }
+
+    private MatchResult toMatchResult(List<GalleryMatch> candidates, Rect faceRect, String imageLabel,
+                                      double decodeMillis, double detectMillis, double encodeMillis, double matchMillis) {
+        GalleryMatch best = candidates.isEmpty() ? null : candidates.get(0);
+        boolean matched = best != null && best.getScore() > recognitionThreshold;
+        MatchResult result = MatchResult.builder()
+            .faceDetected(true)
+            .matched(matched)
+            .personId(matched ? best.getPersonId() : null)
+            .faceDataId(matched ? best.getFaceDataId() : null)
+            .faceX(faceRect.x)
+            .faceY(faceRect.y)
+            .faceWidth(faceRect.width)
+            .faceHeight(faceRect.height)
+            .score(best != null ? best.getScore() : 0.0)
+            .candidates(candidates)
+            .decodeMillis(decodeMillis)
+            .detectMillis(detectMillis)
+            .encodeMillis(encodeMillis)
+            .matchMillis(matchMillis)
+            .build();
+        log.info("Recognition for {} face at ({},{}): matched={}, score={}, total {} ms (decode {}, detect {}, encode {}, match {})",
+                 imageLabel, faceRect.x, faceRect.y, matched, String.format("%.4f", result.getScore()),
+                 String.format("%.1f", result.getTotalMillis()),
+                 String.format("%.1f", decodeMillis), String.format("%.1f", detectMillis),
+                 String.format("%.1f", encodeMillis), String.format("%.1f", matchMillis));
+        return result;
+    }
+
+    private Rect detectLargestFace(Mat image) {
+        List<Rect> faces = detectAllFaces(image);
+        if (faces.isEmpty()) {
+            return null;
+        }
+
+        // Get the largest detected face (most likely to be the main subject)
+        Rect faceRect = faces.get(0);
+        log.info("Extracting face encoding from largest detected face at: x={}, y={}, width={}, height={}",
+                 faceRect.x, faceRect.y, faceRect.width, faceRect.height);
+        return faceRect;
+    }
+
+    /**
+     * All faces in full-resolution coordinates, largest first, capped at face.detection.max.faces
+     */
+    private List<Rect> detectAllFaces(Mat image) {
+        try (MatBuffers buffers = MatBuffers.acquire()) {
+            return detectAllFaces(image, buffers);
+        }
+    }
+
+    private List<Rect> detectAllFaces(Mat image, MatBuffers buffers) {
+        long startTime = System.nanoTime();
+
+        // Run the cascade at the working resolution; the crop is still taken from the full frame
+        double scale = workingScale(image);
+        Mat workingImage = toWorkingGray(image, scale, buffers);
+
+        MatOfRect faces = buffers.detections;
         // --- Performance Optimization ---
         // Set a minimum face size. This is a crucial optimization.
         // It prevents the detector from searching for tiny, irrelevant faces.
         // A value of 20-30% of the image height is a good starting point.
-        int absoluteFaceSize = (int) (image.height() * 0.2);
+        int absoluteFaceSize = (int) (workingImage.height() * minFaceRatio);
         Size minFaceSize = new Size(absoluteFaceSize, absoluteFaceSize);
         
-        log.info("Starting face detection with min face size: {}", minFaceSize);
-        long startTime = System.currentTimeMillis();
+        log.info("Starting face detection at {}x{} (scale {}) with min face size: {}",
+                 workingImage.width(), workingImage.height(), String.format("%.3f", scale), minFaceSize);
 
-        faceDetector.detectMultiScale(image, faces, 1.1, 3, 0, minFaceSize, new Size());
+        detectorPool.withDetector(detector -> {
+            detector.detectMultiScale(workingImage, faces, 1.1, 3, 0, minFaceSize, new Size());
+            return null;
+        });
 
-        long duration = System.currentTimeMillis() - startTime;
-        log.info("Face detection completed in {} ms. Found {} faces.", duration, faces.toArray().length);
+        double durationMillis = elapsedMillis(startTime);
+        double megapixels = image.total() / 1_000_000.0;
+        Rect[] found = faces.toArray();
+        log.info("Face detection completed in {} ms ({} ms/MP of source frame). Found {} faces.",
+                 String.format("%.1f", durationMillis), String.format("%.1f", durationMillis / megapixels), found.length);
 
-        if (faces.empty()) {
+        if (found.length == 0) {
             log.warn("No faces detected in the image.");
-            return null;
+            return List.of();
         }
 
-        // Get the largest detected face (most likely to be the main subject)
-        Rect faceRect = getLargestFace(List.of(faces.toArray()));
-        log.info("Extracting face encoding from largest detected face at: x={}, y={}, width={}, height={}",
-                 faceRect.x, faceRect.y, faceRect.width, faceRect.height);
+        return Arrays.stream(found)
+            .sorted((face1, face2) -> Double.compare(face2.area(), face1.area()))
+            .limit(maxFacesPerFrame)
+            .map(face -> toFullResolution(face, scale, image))
+            .toList();
+    }
+
+    private FaceEncoding encodeFaceRegion(Mat image, Rect faceRect) {
+        try (MatScope scope = new MatScope(); MatBuffers buffers = MatBuffers.acquire()) {
+            // A view into the frame; only the header is allocated
+            Mat faceROI = scope.add(new Mat(image, faceRect));
 
-        Mat faceROI = new Mat(image, faceRect);
+            // Resize face to standard size
+            Imgproc.resize(faceROI, buffers.face, new Size(128, 128));
 
-        // Resize face to standard size
-        Mat resizedFace = new Mat();
-        Imgproc.resize(faceROI, resizedFace, new Size(128, 128));
+            // Convert to a numeric encoding (simplified - in production use deep learning models)
+            return encodeFace(buffers.face, buffers);
+        }
+    }
 
-        // Convert to encoding string (simplified - in production use deep learning models)
-        return matToString(resizedFace);
+    private static double elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
     }
 
     private boolean validateImageForFaceDetection(String imagePath) {
-        try {
-            Mat image = Imgcodecs.imread(imagePath);
+        try (MatScope scope = new MatScope()) {
+            Mat image = scope.add(Imgcodecs.imread(imagePath));
             if (image.empty()) {
                 log.error("Image is empty or could not be loaded: {}", imagePath);
                 return false;
@@ -322,8 +714,8 @@ public class FaceRecognitionService {
 
             // Check if image is too large (might cause memory issues)
             if (image.width() > 4000 || image.height() > 4000) {
-                log.warn("Image very large: {}x{}, this might affect performance",
-                        image.width(), image.height());
+                log.warn("Image very large: {}x{}, detection will run at a working resolution of {}px",
+                        image.width(), image.height(), workingMaxDimension);
             }
 
             log.debug("Image validation passed: {}x{}", image.width(), image.height());
@@ -334,71 +726,71 @@ public class FaceRecognitionService {
             return false;
         }
     }
-
-    private Rect getLargestFace(List<Rect> faces) {
-        return faces.stream()
-                .max((face1, face2) -> Double.compare(face1.area(), face2.area()))
-                .orElse(faces.get(0));
-    }
     
     public Person matchFace(String capturedImagePath) {
-        String capturedEncoding = extractFaceEncoding(capturedImagePath);
-        if (capturedEncoding == null) {
+        MatchResult result = recognize(capturedImagePath);
+        if (!result.isMatched()) {
             return null;
         }
-        
-        List<FaceData> allFaceData = faceDataRepository.findByIsActiveTrue();
-        
-        double bestMatch = 0.0;
-        Person matchedPerson = null;
-        
-        for (FaceData faceData : allFaceData) {
-            double similarity = calculateSimilarity(capturedEncoding, faceData.getFaceEncoding());
-            if (similarity > recognitionThreshold && similarity > bestMatch) {
-                bestMatch = similarity;
-                matchedPerson = faceData.getPerson();
-            }
-        }
-        
-        return matchedPerson;
+        return personRepository.findById(result.getPersonId()).orElse(null);
     }
     
-    public double getBestMatchConfidence(String capturedEncoding) {
+    public double getBestMatchConfidence(FaceEncoding capturedEncoding) {
         if (capturedEncoding == null) return 0.0;
-        List<FaceData> allFaceData = faceDataRepository.findByIsActiveTrue();
-        double bestMatch = 0.0;
-        for (FaceData faceData : allFaceData) {
-            double similarity = calculateSimilarity(capturedEncoding, faceData.getFaceEncoding());
-            if (similarity > bestMatch) {
-                bestMatch = similarity;
-            }
-        }
-        return bestMatch;
+        GalleryMatch bestMatch = faceGallery.findBest(capturedEncoding);
+        return bestMatch != null ? bestMatch.getScore() : 0.0;
     }
     
-    private double calculateSimilarity(String encoding1, String encoding2) {
+    public double calculateSimilarity(FaceEncoding encoding1, FaceEncoding encoding2) {
         if (encoding1 == null || encoding2 == null) {
             return 0.0;
         }
-        // Use Jaro-Winkler similarity for a more nuanced comparison
-        JaroWinklerSimilarity jwSimilarity = new JaroWinklerSimilarity();
-        return jwSimilarity.apply(encoding1, encoding2);
+        // Encodings are unit vectors, so cosine similarity is a single dot product
+        return encoding1.similarity(encoding2);
+    }
+
+    /**
+     * Describe the similarity of an encoding against every active gallery entry, for debugging
+     */
+    public String getConfidenceScoreCalculationDetails(FaceEncoding capturedEncoding) {
+        if (capturedEncoding == null) {
+            return "No encoding provided";
+        }
+        StringBuilder details = new StringBuilder();
+        details.append("threshold=").append(recognitionThreshold);
+        for (GalleryEntry entry : faceDataRepository.findGalleryEntries()) {
+            details.append("; faceData ").append(entry.getFaceDataId())
+                   .append(" -> ").append(String.format("%.4f", calculateSimilarity(capturedEncoding, entry.getEncoding())));
+        }
+        return details.toString();
+    }
+
+    public List<FaceData> getFaceDataForPerson(Person person) {
+        return faceDataRepository.findByPersonAndIsActiveTrue(person);
     }
     
-    private String matToString(Mat mat) {
-        // Convert Mat to string representation
-        // In production, use proper face encoding algorithms
-        byte[] data = new byte[(int) (mat.total() * mat.elemSize())];
-        mat.get(0, 0, data);
-        return java.util.Base64.getEncoder().encodeToString(data);
+    private FaceEncoding encodeFace(Mat faceMat, MatBuffers buffers) {
+        // Grayscale 16x16 thumbnail; FaceEncoding takes care of mean-centring and normalisation
+        Imgproc.cvtColor(faceMat, buffers.faceGray, Imgproc.COLOR_BGR2GRAY);
+        Imgproc.resize(buffers.faceGray, buffers.grid, new Size(FaceEncoding.GRID_SIZE, FaceEncoding.GRID_SIZE), 0, 0, Imgproc.INTER_AREA);
+        buffers.grid.convertTo(buffers.gridFloat, CvType.CV_32F);
+
+        // The grid Mat writes into a direct buffer; read it without another trip through JNI
+        float[] intensities = new float[FaceEncoding.DIMENSION];
+        buffers.gridValues().get(intensities);
+        return FaceEncoding.fromIntensities(intensities);
     }
     
     public void registerFaces(Person person, List<String> base64Images) throws IOException {
         List<FaceData> registeredFaces = new ArrayList<>();
         for (String base64Image : base64Images) {
-            String imagePath = saveImageFromBase64(base64Image, String.valueOf(person.getId()));
+            byte[] imageBytes = decodeBase64Image(base64Image);
+            String imageHash = faceImageStore.put(imageBytes);
             
-            String faceEncoding = extractFaceEncoding(imagePath);
+            FaceEncoding faceEncoding;
+            try (MatScope scope = new MatScope()) {
+                faceEncoding = extractFaceEncoding(scope.add(decodeImage(imageBytes)), "face image " + imageHash);
+            }
             if (faceEncoding == null) {
                 log.warn("No face detected in one of the provided images for person {}. Skipping this image.", person.getEmail());
                 continue; // Skip this image and continue with the next
@@ -406,7 +798,7 @@ public class FaceRecognitionService {
 
             FaceData faceData = new FaceData();
             faceData.setPerson(person);
-            faceData.setImagePath(imagePath);
+            faceData.setImageHash(imageHash);
             faceData.setFaceEncoding(faceEncoding);
             faceData.setConfidenceScore(1.0); // Initial registration has max confidence
             registeredFaces.add(faceData);
@@ -416,7 +808,7 @@ public class FaceRecognitionService {
             throw new IllegalArgumentException("No faces could be detected in any of the provided images.");
         }
 
-        faceDataRepository.saveAll(registeredFaces);
+        faceGallery.addAll(faceDataRepository.saveAll(registeredFaces));
         log.info("Successfully registered {} new face images for person {}", registeredFaces.size(), person.getEmail());
     }
 
@@ -441,19 +833,17 @@ public class FaceRecognitionService {
      * Check if the face recognition service is properly initialized
      */
     public boolean isInitialized() {
-        return faceDetector != null && !faceDetector.empty();
+        return detectorPool != null;
     }
 
     /**
      * Get initialization status for debugging
      */
     public String getInitializationStatus() {
-        if (faceDetector == null) {
-            return "Face detector is null";
-        } else if (faceDetector.empty()) {
-            return "Face detector is empty (cascade not loaded)";
+        if (detectorPool == null) {
+            return "Face detector pool is null (cascade not loaded)";
         } else {
-            return "Face detector is properly initialized";
+            return "Face detector pool is properly initialized (" + detectorPool.size() + " detectors)";
         }
     }
 
@@ -466,17 +856,30 @@ public class FaceRecognitionService {
             return;
         }
 
-        try {
-            Mat image = Imgcodecs.imread(originalImagePath);
+        try (MatScope scope = new MatScope()) {
+            Mat image = scope.add(Imgcodecs.imread(originalImagePath));
             if (image.empty()) {
                 log.error("Cannot load image for debug: {}", originalImagePath);
                 return;
             }
+            saveDebugImage(image, originalImagePath);
+        }
+    }
+
+    /**
+     * Debug method for an image already in memory; originalImagePath only names the output file
+     */
+    public void saveDebugImage(Mat image, String originalImagePath) {
+        if (!debugEnabled) {
+            log.debug("Debug image saving is disabled");
+            return;
+        }
 
-            Mat grayImage = new Mat();
+        try (MatScope scope = new MatScope()) {
+            Mat grayImage = scope.newMat();
             Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
 
-            Mat equalizedImage = new Mat();
+            Mat equalizedImage = scope.newMat();
             Imgproc.equalizeHist(grayImage, equalizedImage);
 
             // Save processed image for debugging
@@ -0,0 +1,90 @@
+package com.facerecognition.service;
+
+import com.facerecognition.recognition.FaceTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds one {@link FaceTracker} per camera and counts how much recognition work tracking saves.
+ */
+@Service
+@Slf4j
+public class FaceTrackingService {
+
+    @Value("${face.tracking.enabled:true}")
+    private boolean enabled;
+
+    @Value("${face.tracking.iou.threshold:0.3}")
+    private double iouThreshold;
+
+    @Value("${face.tracking.reverify.frames:15}")
+    private int reverifyFrames;
+
+    @Value("${face.tracking.reverify.millis:2000}")
+    private long reverifyMillis;
+
+    @Value("${face.tracking.max.idle.millis:1500}")
+    private long maxIdleMillis;
+
+    private final Map<String, FaceTracker> trackers = new ConcurrentHashMap<>();
+    private final AtomicLong lastEvictionMillis = new AtomicLong();
+    private final AtomicLong trackersEvicted = new AtomicLong();
+    private final AtomicLong recognitionsRun = new AtomicLong();
+    private final AtomicLong recognitionsSkipped = new AtomicLong();
+
+    /**
+     * Tracker for a camera, or null when tracking is disabled or the camera is unknown.
+     */
+    public FaceTracker trackerFor(String cameraId) {
+        if (!enabled || cameraId == null) {
+            return null;
+        }
+        evictIdleTrackers(System.currentTimeMillis());
+        return trackers.computeIfAbsent(cameraId,
+            id -> new FaceTracker(iouThreshold, reverifyFrames, reverifyMillis, maxIdleMillis));
+    }
+
+    /**
+     * Drop trackers of cameras that have not reported a face for face.tracking.max.idle.millis;
+     * all their tracks have expired, so a new tracker behaves the same. Runs at most once per
+     * idle period, on whichever caller gets there first.
+     */
+    private void evictIdleTrackers(long nowMillis) {
+        long last = lastEvictionMillis.get();
+        if (nowMillis - last <= maxIdleMillis || !lastEvictionMillis.compareAndSet(last, nowMillis)) {
+            return;
+        }
+        trackers.entrySet().removeIf(entry -> {
+            if (entry.getValue().isIdle(nowMillis)) {
+                trackersEvicted.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void recordRecognition(boolean skipped) {
+        if (skipped) {
+            recognitionsSkipped.incrementAndGet();
+        } else {
+            recognitionsRun.incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("camerasTracked", trackers.size());
+        stats.put("trackersEvicted", trackersEvicted.get());
+        stats.put("activeTracks", trackers.values().stream().mapToInt(FaceTracker::activeTracks).sum());
+        stats.put("recognitionsRun", recognitionsRun.get());
+        stats.put("recognitionsSkipped", recognitionsSkipped.get());
+        return stats;
+    }
+}
@@ -0,0 +1,182 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.recognition.MatBuffers;
+import com.facerecognition.recognition.PerceptualHash;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Skips frames that are perceptually identical to the last frame processed for the same camera.
+ *
+ * The hash is computed from a reduced grayscale decode (IMREAD_REDUCED_GRAYSCALE_4), so a
+ * skipped frame costs a fraction of a full decode and none of detection, matching or persistence.
+ * A reference frame is only trusted for face.dedup.max.age.millis so a static scene is still
+ * re-processed periodically.
+ */
+@Service
+@Slf4j
+public class FrameDeduplicationService {
+
+    public enum Mode {
+        /** Re-publish the previous frame's result without processing or persisting anything */
+        REUSE,
+        /** Drop the frame silently */
+        DROP
+    }
+
+    @Value("${face.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${face.dedup.mode:REUSE}")
+    private Mode mode;
+
+    @Value("${face.dedup.max.distance:4}")
+    private int maxDistance;
+
+    @Value("${face.dedup.max.age.millis:5000}")
+    private long maxAgeMillis;
+
+    private final Map<String, CameraState> cameras = new ConcurrentHashMap<>();
+    private final AtomicLong framesChecked = new AtomicLong();
+    private final AtomicLong framesReused = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    /**
+     * Decision for an incoming frame. When the frame is a duplicate the previous
+     * result is returned (null in DROP mode); otherwise the frame becomes the camera's
+     * new reference. In REUSE mode a duplicate of a reference that is still being
+     * processed is processed as well.
+     */
+    public Check check(String cameraId, byte[] imageBytes) {
+        if (!enabled || cameraId == null) {
+            return Check.process(0L);
+        }
+        framesChecked.incrementAndGet();
+        long hash = hash(imageBytes);
+        long now = System.currentTimeMillis();
+
+        CameraState state = cameras.computeIfAbsent(cameraId, id -> new CameraState());
+        synchronized (state) {
+            boolean fresh = state.referenceMillis > 0 && now - state.referenceMillis < maxAgeMillis;
+            if (fresh && PerceptualHash.distance(hash, state.referenceHash) <= maxDistance) {
+                if (mode == Mode.DROP) {
+                    state.skipped++;
+                    framesDropped.incrementAndGet();
+                    return Check.duplicate(hash, null);
+                }
+                if (state.lastResult != null) {
+                    state.skipped++;
+                    framesReused.incrementAndGet();
+                    return Check.duplicate(hash, state.lastResult);
+                }
+                // The reference frame is still in the pipeline, so there is nothing to reuse yet;
+                // process this frame rather than leave the client without a result
+            }
+            state.referenceHash = hash;
+            state.referenceMillis = now;
+            state.lastResult = null;
+            return Check.process(hash);
+        }
+    }
+
+    /**
+     * Remember the result of a processed reference frame so duplicates can reuse it.
+     */
+    public void recordResult(String cameraId, long hash, DetectionLog result) {
+        if (!enabled || cameraId == null) {
+            return;
+        }
+        CameraState state = cameras.get(cameraId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            // Ignore if a newer reference frame replaced this one in the meantime
+            if (state.referenceHash == hash) {
+                state.lastResult = result;
+            }
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("mode", mode);
+        stats.put("maxDistance", maxDistance);
+        stats.put("framesChecked", framesChecked.get());
+        stats.put("framesReused", framesReused.get());
+        stats.put("framesDropped", framesDropped.get());
+        Map<String, Long> skippedPerCamera = new LinkedHashMap<>();
+        cameras.forEach((cameraId, state) -> skippedPerCamera.put(cameraId, state.skipped));
+        stats.put("skippedPerCamera", skippedPerCamera);
+        return stats;
+    }
+
+    private long hash(byte[] imageBytes) {
+        Mat reduced;
+        try (MatBuffers buffers = MatBuffers.acquire()) {
+            reduced = Imgcodecs.imdecode(buffers.encoded(imageBytes), Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4);
+        }
+        try {
+            if (reduced.empty()) {
+                // Undecodable frames are never duplicates; the full decode reports the error
+                return System.nanoTime();
+            }
+            return PerceptualHash.dHash(reduced);
+        } finally {
+            reduced.release();
+        }
+    }
+
+    private static class CameraState {
+        long referenceHash;
+        long referenceMillis;
+        DetectionLog lastResult;
+        volatile long skipped;
+    }
+
+    public static final class Check {
+        private final boolean duplicate;
+        private final long hash;
+        private final DetectionLog previousResult;
+
+        private Check(boolean duplicate, long hash, DetectionLog previousResult) {
+            this.duplicate = duplicate;
+            this.hash = hash;
+            this.previousResult = previousResult;
+        }
+
+        static Check process(long hash) {
+            return new Check(false, hash, null);
+        }
+
+        static Check duplicate(long hash, DetectionLog previousResult) {
+            return new Check(true, hash, previousResult);
+        }
+
+        public boolean isDuplicate() {
+            return duplicate;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        public DetectionLog getPreviousResult() {
+            return previousResult;
+        }
+    }
+}
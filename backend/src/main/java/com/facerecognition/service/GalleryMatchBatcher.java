@@ -0,0 +1,193 @@
+package com.facerecognition.service;
+
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.recognition.GalleryMatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micro-batches gallery lookups across frames and cameras.
+ *
+ * Queries are collected until face.recognition.batch.max.size are waiting or
+ * the first has waited face.recognition.batch.max.wait.millis, then the whole
+ * batch is scored in one blocked pass with {@link FaceGallery#findTopKBatch}
+ * and each result is handed back to its caller. Under load the gallery is
+ * streamed through the cache once per batch instead of once per face; an idle
+ * system pays at most the wait time.
+ *
+ * HNSW lookups are not batched because they share no scan.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GalleryMatchBatcher {
+
+    private record Query(FaceEncoding encoding, int k, CompletableFuture<List<GalleryMatch>> result) {
+    }
+
+    private final FaceGallery faceGallery;
+
+    @Value("${face.recognition.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${face.recognition.batch.max.size:32}")
+    private int maxBatchSize;
+
+    @Value("${face.recognition.batch.max.wait.millis:2}")
+    private long maxWaitMillis;
+
+    @Value("${face.recognition.batch.workers:2}")
+    private int workerCount;
+
+    private final BlockingQueue<Query> pending = new ArrayBlockingQueue<>(1024);
+    private volatile boolean stopped;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "gallery-batch-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Gallery match batching enabled: up to {} queries or {} ms per batch, {} workers",
+                 maxBatchSize, maxWaitMillis, workerCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        failPending();
+    }
+
+    // Nothing will take these any more; fail them so callers blocked in join() return
+    private void failPending() {
+        List<Query> abandoned = new ArrayList<>();
+        pending.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.info("Failing {} queued gallery lookups on shutdown", abandoned.size());
+        }
+        IllegalStateException stoppedException = new IllegalStateException("Gallery match batcher is shut down");
+        abandoned.forEach(query -> query.result().completeExceptionally(stoppedException));
+    }
+
+    /**
+     * Queue a lookup for the next batch; completes with up to k matches, best first
+     */
+    public CompletableFuture<List<GalleryMatch>> submit(FaceEncoding encoding, int k) {
+        if (!enabled || faceGallery.isApproximate()) {
+            return CompletableFuture.completedFuture(faceGallery.findTopK(encoding, k));
+        }
+        Query query = new Query(encoding, k, new CompletableFuture<>());
+        if (stopped) {
+            query.result().completeExceptionally(new IllegalStateException("Gallery match batcher is shut down"));
+            return query.result();
+        }
+        try {
+            pending.put(query);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            query.result().completeExceptionally(e);
+        }
+        if (stopped) {
+            // Queued after shutdown drained the queue
+            failPending();
+        }
+        return query.result();
+    }
+
+    /**
+     * Blocking form of {@link #submit}
+     */
+    public List<GalleryMatch> findTopK(FaceEncoding encoding, int k) {
+        return submit(encoding, k).join();
+    }
+
+    private void work() {
+        List<Query> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < maxBatchSize) {
+                    pending.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Query next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                score(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void score(List<Query> batch) {
+        try {
+            int k = batch.stream().mapToInt(Query::k).max().orElse(1);
+            List<List<GalleryMatch>> results = faceGallery.findTopKBatch(batch.stream().map(Query::encoding).toList(), k);
+            for (int i = 0; i < batch.size(); i++) {
+                List<GalleryMatch> matches = results.get(i);
+                int limit = Math.min(batch.get(i).k(), matches.size());
+                batch.get(i).result().complete(matches.subList(0, limit));
+            }
+            batches.incrementAndGet();
+            queries.addAndGet(batch.size());
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+        } catch (RuntimeException e) {
+            log.error("Batched gallery lookup failed for {} queries", batch.size(), e);
+            batch.forEach(query -> query.result().completeExceptionally(e));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pending", pending.size());
+        stats.put("batches", batchCount);
+        stats.put("queries", queries.get());
+        stats.put("avgBatchSize", batchCount > 0 ? (double) queries.get() / batchCount : 0.0);
+        stats.put("largestBatch", largestBatch.get());
+        return stats;
+    }
+}
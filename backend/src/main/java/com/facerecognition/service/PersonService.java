@@ -2,6 +2,8 @@ package com.facerecognition.service;
 
 import com.facerecognition.model.FaceData;
 import com.facerecognition.model.Person;
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.recognition.MatScope;
 import com.facerecognition.repository.FaceDataRepository;
 import com.facerecognition.repository.PersonRepository;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +11,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -21,8 +25,14 @@ public class PersonService {
     private final PersonRepository personRepository;
     private final FaceDataRepository faceDataRepository;
     private final FaceRecognitionService faceRecognitionService;
+    private final FaceGallery faceGallery;
+    private final FaceImageStore faceImageStore;
+    private final TransactionRunner transactionRunner;
     
-    @Transactional
+    /**
+     * Register a person with one face image. The image is decoded and encoded before any
+     * transaction is opened; only the inserts run in one.
+     */
     public Person registerPerson(String name, String email, String phoneNumber, String address, String base64Image) {
         log.info("Registering new person: {}, {}", name, email);
         // Basic validation
@@ -30,47 +40,52 @@ public class PersonService {
             throw new IllegalArgumentException("Name, email, and image data are required.");
         }
 
-        Person newPerson = new Person();
-        newPerson.setName(name);
-        newPerson.setEmail(email);
-        newPerson.setPhoneNumber(phoneNumber);
-        newPerson.setAddress(address);
-        newPerson.setActive(true);
-        newPerson.setRegistrationDate(LocalDateTime.now());
-
-        // Save person to get an ID
-        Person savedPerson = personRepository.save(newPerson);
-        log.debug("Person saved with ID: {}", savedPerson.getId());
-
+        byte[] imageBytes;
+        FaceEncoding faceEncoding;
+        String imageHash;
         try {
-            // Save the image and extract face encoding
-            String imagePath = faceRecognitionService.saveImageFromBase64(base64Image, "person_" + savedPerson.getId());
-            log.debug("Face image saved to: {}", imagePath);
-            
-            // Extract face encoding
-            String faceEncoding = faceRecognitionService.extractFaceEncoding(imagePath);
+            // Extract the face encoding from memory
+            imageBytes = faceRecognitionService.decodeBase64Image(base64Image);
+            try (MatScope scope = new MatScope()) {
+                faceEncoding = faceRecognitionService.extractFaceEncoding(
+                    scope.add(faceRecognitionService.decodeImage(imageBytes)), "registration of " + email);
+            }
             if (faceEncoding == null) {
-                log.warn("Could not extract face encoding from image for person ID: {}", savedPerson.getId());
+                log.warn("Could not extract face encoding from image for: {}", email);
                 throw new IllegalArgumentException("Could not detect a face in the provided image. Please try again with a clearer face image.");
             }
-            
-            log.debug("Face encoding extracted successfully, length: {}", faceEncoding.length());
+            log.debug("Face encoding extracted successfully, dimension: {}", faceEncoding.dimension());
+            // Content-addressed, so writing it before the transaction is harmless if the insert rolls back
+            imageHash = faceImageStore.put(imageBytes);
+        } catch (Exception e) {
+            log.error("Error processing face image during registration", e);
+            throw new RuntimeException("Error processing face image: " + e.getMessage(), e);
+        }
+
+        return transactionRunner.execute("personRegistration", () -> {
+            Person newPerson = new Person();
+            newPerson.setName(name);
+            newPerson.setEmail(email);
+            newPerson.setPhoneNumber(phoneNumber);
+            newPerson.setAddress(address);
+            newPerson.setActive(true);
+            newPerson.setRegistrationDate(LocalDateTime.now());
 
-            // Save the face data with encoding
+            // Save person to get an ID
+            Person savedPerson = personRepository.save(newPerson);
+            log.debug("Person saved with ID: {}", savedPerson.getId());
+
+            // Save the face data with encoding; the image itself stays in the blob store
             FaceData faceData = new FaceData();
             faceData.setPerson(savedPerson);
-            faceData.setBase64ImageData(base64Image);
+            faceData.setImageHash(imageHash);
             faceData.setFaceEncoding(faceEncoding);
             faceData.setIsActive(true); // Fix: Use setIsActive instead of setActive
-            faceDataRepository.save(faceData);
+            faceGallery.add(faceDataRepository.save(faceData));
             log.info("Face data saved successfully for person ID: {}", savedPerson.getId());
-            
-        } catch (Exception e) {
-            log.error("Error processing face image during registration", e);
-            throw new RuntimeException("Error processing face image: " + e.getMessage(), e);
-        }
 
-        return savedPerson;
+            return savedPerson;
+        });
     }
     
     public List<Person> getAllActivePersons() {
@@ -109,6 +124,7 @@ public class PersonService {
                 person -> {
                     person.setActive(false);
                     personRepository.save(person);
+                    faceGallery.removePerson(person.getId());
                 },
                 () -> {
                     throw new IllegalArgumentException("Person not found with id: " + id);
@@ -119,4 +135,16 @@ public class PersonService {
     public List<FaceData> getPersonFaceData(Long personId) {
         return faceDataRepository.findActiveByPersonId(personId);
     }
+    
+    /**
+     * Original bytes of a registered face image, read from the blob store only when asked for
+     */
+    public Optional<byte[]> getFaceImage(String imageHash) {
+        try {
+            return faceImageStore.get(imageHash);
+        } catch (IOException e) {
+            log.error("Error reading face image {}", imageHash, e);
+            throw new UncheckedIOException("Error reading face image: " + e.getMessage(), e);
+        }
+    }
 }
\ No newline at end of file
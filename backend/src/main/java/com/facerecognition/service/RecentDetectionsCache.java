@@ -0,0 +1,162 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.repository.DetectionLogRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * The newest detection logs, overall and per camera, held in bounded
+ * newest-first buffers so the dashboard's first page never touches the
+ * database. A camera gets a buffer when its first log is saved; the buffer is
+ * filled from the database on first read and then kept current as logs are
+ * saved. Requests for more rows than a buffer holds, or for cameras without
+ * a buffer, go to the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecentDetectionsCache {
+
+    // Same order as the keyset queries: detection time, then id, newest first
+    private static final Comparator<DetectionLog> NEWEST_FIRST = Comparator
+        .comparing(DetectionLog::getDetectionTime, Comparator.nullsLast(Comparator.reverseOrder()))
+        .thenComparing(DetectionLog::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final DetectionLogRepository detectionLogRepository;
+
+    @Value("${face.detections.recent.global.size:200}")
+    private int globalSize;
+
+    @Value("${face.detections.recent.camera.size:50}")
+    private int cameraSize;
+
+    private final Map<String, RecentBuffer> byCamera = new ConcurrentHashMap<>();
+    private RecentBuffer global;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        global = new RecentBuffer(globalSize);
+    }
+
+    /**
+     * Add a freshly saved log to the global and camera buffers
+     */
+    public void record(DetectionLog detectionLog) {
+        global.add(detectionLog);
+        if (detectionLog.getCameraId() != null) {
+            cameraBuffer(detectionLog.getCameraId()).add(detectionLog);
+        }
+    }
+
+    public List<DetectionLog> latest(int limit) {
+        return global.latest(limit, size -> detectionLogRepository.findLatest(PageRequest.of(0, size)));
+    }
+
+    public List<DetectionLog> latestByCamera(String cameraId, int limit) {
+        // Only cameras that have produced a detection get a buffer, so arbitrary ids cannot grow the map
+        RecentBuffer buffer = byCamera.get(cameraId);
+        if (buffer == null) {
+            misses.incrementAndGet();
+            return detectionLogRepository.findLatestByCamera(cameraId, PageRequest.of(0, limit));
+        }
+        return buffer.latest(limit, size -> detectionLogRepository.findLatestByCamera(cameraId, PageRequest.of(0, size)));
+    }
+
+    /**
+     * Keep buffered copies in line with a notification status update made in the database
+     */
+    public void updateNotificationStatus(Long detectionId, boolean emailSent, boolean smsSent) {
+        global.forId(detectionId, log -> applyNotificationStatus(log, emailSent, smsSent));
+        byCamera.values().forEach(buffer -> buffer.forId(detectionId, log -> applyNotificationStatus(log, emailSent, smsSent)));
+    }
+
+    private static void applyNotificationStatus(DetectionLog log, boolean emailSent, boolean smsSent) {
+        log.setEmailSent(emailSent);
+        log.setSmsSent(smsSent);
+        log.setNotificationSent(emailSent || smsSent);
+    }
+
+    private RecentBuffer cameraBuffer(String cameraId) {
+        return byCamera.computeIfAbsent(cameraId, id -> new RecentBuffer(cameraSize));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cameras", byCamera.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private final class RecentBuffer {
+        private final int capacity;
+        private final List<DetectionLog> entries;
+        private boolean loaded;
+
+        RecentBuffer(int capacity) {
+            this.capacity = capacity;
+            this.entries = new ArrayList<>(capacity + 1);
+        }
+
+        synchronized void add(DetectionLog detectionLog) {
+            // A log saved while the buffer was being filled from the database arrives twice
+            for (DetectionLog entry : entries) {
+                if (entry.getId().equals(detectionLog.getId())) {
+                    return;
+                }
+            }
+            // Write-behind can save logs slightly out of order; almost always this is index 0
+            int index = 0;
+            while (index < entries.size() && NEWEST_FIRST.compare(entries.get(index), detectionLog) < 0) {
+                index++;
+            }
+            if (index >= capacity) {
+                return;
+            }
+            entries.add(index, detectionLog);
+            if (entries.size() > capacity) {
+                entries.remove(entries.size() - 1);
+            }
+        }
+
+        List<DetectionLog> latest(int limit, IntFunction<List<DetectionLog>> loader) {
+            if (limit > capacity) {
+                misses.incrementAndGet();
+                return loader.apply(limit);
+            }
+            synchronized (this) {
+                if (!loaded) {
+                    misses.incrementAndGet();
+                    loader.apply(capacity).forEach(this::add);
+                    loaded = true;
+                } else {
+                    hits.incrementAndGet();
+                }
+                return List.copyOf(entries.subList(0, Math.min(limit, entries.size())));
+            }
+        }
+
+        synchronized void forId(Long detectionId, Consumer<DetectionLog> action) {
+            for (DetectionLog entry : entries) {
+                if (entry.getId().equals(detectionId)) {
+                    action.accept(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.facerecognition.service;
+
+import com.facerecognition.recognition.MatBuffers;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs synthetic frames through decode, detect, encode and match after startup, so
+ * JIT compilation, native library page-in and first use of every pooled classifier
+ * happen before cameras are routed here.
+ *
+ * Passes run in rounds of face.warmup.parallelism concurrent frames. The service is
+ * warm once the mean pass time of the last face.warmup.window rounds is within
+ * face.warmup.tolerance of the window before it, or after face.warmup.max.rounds.
+ * Until then /health/system reports "warming" and answers 503. A pass that throws
+ * leaves the service FAILED, which /health/system keeps reporting as 503.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecognitionWarmup {
+
+    public enum State { WARMING, READY, FAILED, DISABLED }
+
+    private static final int SYNTHETIC_FRAMES = 4;
+
+    private final FaceRecognitionService faceRecognitionService;
+
+    @Value("${face.warmup.enabled:true}")
+    private boolean enabled;
+
+    // 0 means one per available processor
+    @Value("${face.warmup.parallelism:0}")
+    private int parallelism;
+
+    @Value("${face.warmup.min.rounds:10}")
+    private int minRounds;
+
+    @Value("${face.warmup.max.rounds:200}")
+    private int maxRounds;
+
+    @Value("${face.warmup.window:5}")
+    private int window;
+
+    @Value("${face.warmup.tolerance:0.1}")
+    private double tolerance;
+
+    @Value("${face.warmup.frame.width:640}")
+    private int frameWidth;
+
+    @Value("${face.warmup.frame.height:480}")
+    private int frameHeight;
+
+    private volatile State state = State.WARMING;
+    private volatile int rounds;
+    private volatile long durationMillis;
+    private volatile double firstPassMillis;
+    private volatile double steadyPassMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            state = State.DISABLED;
+            return;
+        }
+        Thread thread = new Thread(this::run, "recognition-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isReady() {
+        return state == State.READY || state == State.DISABLED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void run() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("Warming up recognition with {} concurrent synthetic frames per round", threads);
+        long start = System.currentTimeMillis();
+        List<byte[]> frames = syntheticFrames();
+        List<Double> roundMeans = new ArrayList<>();
+        boolean failed = false;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, MatBuffers.releasingOnExit(Executors.defaultThreadFactory()));
+        try {
+            while (rounds < maxRounds) {
+                List<Future<Double>> passes = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    byte[] frame = frames.get((rounds * threads + i) % frames.size());
+                    passes.add(executor.submit(() -> timePass(frame)));
+                }
+                double total = 0;
+                for (Future<Double> pass : passes) {
+                    total += pass.get();
+                }
+                roundMeans.add(total / threads);
+                if (rounds == 0) {
+                    firstPassMillis = roundMeans.get(0);
+                }
+                rounds++;
+                if (rounds >= minRounds && isSteady(roundMeans)) {
+                    break;
+                }
+            }
+            steadyPassMillis = windowMean(roundMeans, roundMeans.size());
+            if (rounds >= maxRounds) {
+                log.warn("Recognition latency did not settle within {} warm-up rounds, accepting traffic anyway", maxRounds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Recognition warm-up interrupted after {} rounds", rounds);
+        } catch (ExecutionException e) {
+            failed = true;
+            log.error("Recognition warm-up pass failed after {} rounds, health check stays unavailable", rounds, e.getCause());
+        } finally {
+            executor.shutdownNow();
+            durationMillis = System.currentTimeMillis() - start;
+            state = failed ? State.FAILED : State.READY;
+        }
+        log.info("Recognition warm-up finished in {} ms over {} rounds: first pass {} ms, steady {} ms",
+                 durationMillis, rounds, String.format("%.1f", firstPassMillis), String.format("%.1f", steadyPassMillis));
+    }
+
+    private double timePass(byte[] frame) throws Exception {
+        long start = System.nanoTime();
+        faceRecognitionService.warmUp(frame);
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    private boolean isSteady(List<Double> roundMeans) {
+        if (roundMeans.size() < 2 * window) {
+            return false;
+        }
+        double previous = windowMean(roundMeans, roundMeans.size() - window);
+        double latest = windowMean(roundMeans, roundMeans.size());
+        // Two-sided, so a window that is still getting faster is not mistaken for a settled one
+        return Math.abs(latest - previous) <= tolerance * previous;
+    }
+
+    // Mean of the window rounds ending just before index end
+    private double windowMean(List<Double> roundMeans, int end) {
+        int from = Math.max(0, end - window);
+        return roundMeans.subList(from, end).stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    }
+
+    /**
+     * JPEG frames of noise with a bright ellipse, roughly the size and texture of camera frames
+     */
+    private List<byte[]> syntheticFrames() {
+        List<byte[]> frames = new ArrayList<>(SYNTHETIC_FRAMES);
+        for (int i = 0; i < SYNTHETIC_FRAMES; i++) {
+            Mat frame = new Mat(frameHeight, frameWidth, CvType.CV_8UC3);
+            MatOfByte jpeg = new MatOfByte();
+            try {
+                Core.randu(frame, 0, 256);
+                Imgproc.ellipse(frame, new Point(frameWidth / 2.0 + i * 10, frameHeight / 2.0),
+                                new Size(frameWidth / 8.0, frameHeight / 5.0), 0, 0, 360, new Scalar(190, 200, 220), -1);
+                Imgcodecs.imencode(".jpg", frame, jpeg);
+                frames.add(jpeg.toArray());
+            } finally {
+                frame.release();
+                jpeg.release();
+            }
+        }
+        return frames;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name().toLowerCase());
+        stats.put("rounds", rounds);
+        stats.put("durationMillis", durationMillis);
+        stats.put("firstPassMillis", firstPassMillis);
+        stats.put("steadyPassMillis", steadyPassMillis);
+        return stats;
+    }
+}
@@ -1,5 +1,6 @@
 package com.facerecognition.service;
 
+import com.facerecognition.config.AsyncConfig;
 import com.facerecognition.model.DetectionLog;
 import com.facerecognition.model.Person;
 import com.twilio.Twilio;
@@ -36,7 +37,7 @@ public class SmsService {
         }
     }
     
-    @Async
+    @Async(AsyncConfig.NOTIFICATION_EXECUTOR)
     public void sendFaceDetectionSms(Person person, DetectionLog detectionLog) {
         if (person.getPhoneNumber() == null || person.getPhoneNumber().trim().isEmpty()) {
             log.warn("No phone number available for person: {}", person.getEmail());
@@ -0,0 +1,74 @@
+package com.facerecognition.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Supplier;
+
+/**
+ * Short programmatic transactions around the writes of the detection path.
+ *
+ * With open-in-view disabled the JDBC connection is taken when a transaction
+ * begins and returned when it commits, so the time spent in {@link #execute}
+ * is the connection hold time. It is recorded per named transaction and
+ * reported on /health/pipeline.
+ */
+@Service
+public class TransactionRunner {
+
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, HoldTime> holdTimes = new ConcurrentHashMap<>();
+
+    public TransactionRunner(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T execute(String name, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } finally {
+            holdTimes.computeIfAbsent(name, key -> new HoldTime()).record(System.nanoTime() - start);
+        }
+    }
+
+    public void executeWithoutResult(String name, Runnable work) {
+        execute(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        holdTimes.forEach((name, holdTime) -> stats.put(name, holdTime.toMap()));
+        return stats;
+    }
+
+    private static final class HoldTime {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("transactions", n);
+            map.put("avgHoldMillis", n > 0 ? totalNanos.get() / 1_000_000.0 / n : 0.0);
+            map.put("maxHoldMillis", maxNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
+}
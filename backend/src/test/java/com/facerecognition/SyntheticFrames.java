@@ -0,0 +1,60 @@
+package com.facerecognition;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Test frames of blurred, low-contrast noise with a bright ellipse.
+ *
+ * Haar features are normalised by window variance, so any texture engages the cascade
+ * much as a real scene does; frames of flat colour are rejected almost for free and
+ * would understate detection cost. The scene is drawn at a fixed base size and scaled
+ * to the requested one, so frames of every resolution show the same content, as a
+ * higher-resolution camera pointed at the same scene would.
+ */
+public final class SyntheticFrames {
+
+    private static final int BASE_WIDTH = 320;
+    private static final int BASE_HEIGHT = 200;
+
+    private SyntheticFrames() {
+    }
+
+    /**
+     * Frame as a decoded BGR Mat; the caller releases it
+     */
+    public static Mat mat(int width, int height, long seed) {
+        Mat base = new Mat(BASE_HEIGHT, BASE_WIDTH, CvType.CV_8UC3);
+        Core.setRNGSeed((int) seed);
+        Core.randu(base, 96, 160);
+        Imgproc.GaussianBlur(base, base, new Size(0, 0), 1);
+        Imgproc.ellipse(base, new Point(BASE_WIDTH / 2.0 + seed % 16, BASE_HEIGHT / 2.0),
+                        new Size(BASE_WIDTH / 8.0, BASE_HEIGHT / 5.0), 0, 0, 360, new Scalar(190, 200, 220), -1);
+        Mat frame = new Mat();
+        Imgproc.resize(base, frame, new Size(width, height), 0, 0, Imgproc.INTER_CUBIC);
+        base.release();
+        return frame;
+    }
+
+    /**
+     * The same frame JPEG-encoded, for paths that take encoded bytes
+     */
+    public static byte[] jpeg(int width, int height, long seed) {
+        Mat frame = mat(width, height, seed);
+        MatOfByte jpeg = new MatOfByte();
+        try {
+            Imgcodecs.imencode(".jpg", frame, jpeg);
+            return jpeg.toArray();
+        } finally {
+            frame.release();
+            jpeg.release();
+        }
+    }
+}
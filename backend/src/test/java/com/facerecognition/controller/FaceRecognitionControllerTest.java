@@ -0,0 +1,111 @@
+package com.facerecognition.controller;
+
+import com.facerecognition.SyntheticFrames;
+import com.facerecognition.service.FaceImageStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class FaceRecognitionControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${face.stream.max.frame.bytes}")
+    private int maxFrameBytes;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private FaceImageStore faceImageStore;
+
+    @Test
+    void oversizeRawFrameWithoutContentLengthIsRejectedAsTooLarge() throws Exception {
+        assertThat(postChunkedRawFrame(new byte[maxFrameBytes + 1]).statusCode())
+            .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE.value());
+    }
+
+    @Test
+    void emptyRawFrameWithoutContentLengthIsABadRequest() throws Exception {
+        assertThat(postChunkedRawFrame(new byte[0]).statusCode())
+            .isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    void oversizeMultipartFrameIsRejectedAsTooLarge() {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("image", new ByteArrayResource(new byte[maxFrameBytes + 1]) {
+            @Override
+            public String getFilename() {
+                return "frame.jpg";
+            }
+        });
+        form.add("cameraId", "cam-1");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        ResponseEntity<String> response = restTemplate.postForEntity(
+            "/detections/detect", new HttpEntity<>(form, headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void pageCursorWithoutTimeIsABadRequest() {
+        assertThat(restTemplate.getForEntity("/detections/recent?beforeId=5", String.class).getStatusCode())
+            .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForEntity("/detections/camera/cam-1?beforeId=5", String.class).getStatusCode())
+            .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void faceImagesAreServedWithTheirImageType() throws Exception {
+        byte[] jpeg = SyntheticFrames.jpeg(64, 64, 1);
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13};
+        byte[] unknown = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13};
+
+        assertThat(faceImageContentType(faceImageStore.put(jpeg))).isEqualTo(MediaType.IMAGE_JPEG);
+        assertThat(faceImageContentType(faceImageStore.put(png))).isEqualTo(MediaType.IMAGE_PNG);
+        assertThat(faceImageContentType(faceImageStore.put(unknown))).isEqualTo(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private MediaType faceImageContentType(String hash) {
+        ResponseEntity<byte[]> response = restTemplate.getForEntity("/faces/images/" + hash, byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getHeaders().getContentType();
+    }
+
+    // An input stream publisher has no known length, so the body goes out chunked
+    private HttpResponse<String> postChunkedRawFrame(byte[] frame) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/detections/detect"))
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG_VALUE)
+            .header("X-Camera-Id", "cam-1")
+            .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(frame)))
+            .build();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,117 @@
+package com.facerecognition.recognition;
+
+import nu.pattern.OpenCV;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.objdetect.CascadeClassifier;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CascadeDetectorPoolTest {
+
+    private static final int POOL_SIZE = 4;
+    private static final int THREADS = 32;
+    private static final int BORROWS_PER_THREAD = 500;
+
+    @TempDir
+    static Path tempDir;
+
+    private static String cascadePath;
+
+    @BeforeAll
+    static void loadCascade() throws Exception {
+        OpenCV.loadLocally();
+        Path cascade = tempDir.resolve("haarcascade_frontalface_alt.xml");
+        try (InputStream in = CascadeDetectorPoolTest.class.getClassLoader().getResourceAsStream("haarcascade_frontalface_alt.xml")) {
+            Files.copy(in, cascade);
+        }
+        cascadePath = cascade.toString();
+    }
+
+    @Test
+    void neverHandsOneClassifierToTwoThreadsAndAlwaysGetsItBack() throws Exception {
+        CascadeDetectorPool pool = new CascadeDetectorPool(cascadePath, POOL_SIZE);
+        Set<CascadeClassifier> inUse = ConcurrentHashMap.newKeySet();
+        Set<CascadeClassifier> seen = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        AtomicInteger sharedBorrows = new AtomicInteger();
+        AtomicInteger thrown = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < BORROWS_PER_THREAD; i++) {
+                    boolean fail = i % 7 == 0;
+                    try {
+                        pool.withDetector(classifier -> {
+                            if (!inUse.add(classifier)) {
+                                sharedBorrows.incrementAndGet();
+                            }
+                            seen.add(classifier);
+                            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                            try {
+                                Thread.onSpinWait();
+                                if (fail) {
+                                    throw new IllegalStateException("detection failed");
+                                }
+                                return null;
+                            } finally {
+                                concurrent.decrementAndGet();
+                                inUse.remove(classifier);
+                            }
+                        });
+                    } catch (IllegalStateException e) {
+                        thrown.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(sharedBorrows.get()).isZero();
+        assertThat(maxConcurrent.get()).isLessThanOrEqualTo(POOL_SIZE);
+        assertThat(thrown.get()).isEqualTo(THREADS * ((BORROWS_PER_THREAD + 6) / 7));
+        assertThat(pool.available()).isEqualTo(POOL_SIZE);
+        assertThat(seen).hasSize(POOL_SIZE);
+    }
+
+    @Test
+    void returnsTheClassifierWhenTheCallbackThrows() {
+        CascadeDetectorPool pool = new CascadeDetectorPool(cascadePath, 1);
+
+        assertThatThrownBy(() -> pool.withDetector(classifier -> {
+            throw new IllegalStateException("detection failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(pool.available()).isEqualTo(1);
+        boolean empty = pool.withDetector(CascadeClassifier::empty);
+        assertThat(empty).isFalse();
+    }
+
+    @Test
+    void rejectsEmptyPool() {
+        assertThatThrownBy(() -> new CascadeDetectorPool(cascadePath, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
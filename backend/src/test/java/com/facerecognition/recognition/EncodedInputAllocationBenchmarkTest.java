@@ -0,0 +1,99 @@
+package com.facerecognition.recognition;
+
+import com.facerecognition.SyntheticFrames;
+import nu.pattern.OpenCV;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Heap allocated and time spent per frame handing compressed bytes to imdecode:
+ * a MatOfByte per frame against the thread's reused direct buffer. Frames of
+ * varying encoded length are cycled, as a camera's JPEGs vary from frame to frame.
+ *
+ * Native memory is not visible to the JVM's allocation accounting (nor to JFR):
+ * a MatOfByte also mallocs and fills a buffer the size of the frame, the reused
+ * buffer only copies into memory it already has.
+ *
+ * Run with: mvn test -Dbenchmark=true -Dtest=EncodedInputAllocationBenchmarkTest
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EncodedInputAllocationBenchmarkTest {
+
+    private static final int FRAME_VARIANTS = 16;
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int CALLS = 200_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static byte[][] frames;
+
+    @BeforeAll
+    static void loadOpenCV() {
+        OpenCV.loadLocally();
+        frames = new byte[FRAME_VARIANTS][];
+        for (int i = 0; i < FRAME_VARIANTS; i++) {
+            frames[i] = SyntheticFrames.jpeg(1280, 720, i);
+        }
+    }
+
+    @Test
+    void reusedBufferAllocatesLessPerFrame() {
+        double[] perFrame = measure("MatOfByte per frame", bytes -> new MatOfByte(bytes).release());
+        double[] reused;
+        try (MatBuffers buffers = MatBuffers.acquire()) {
+            reused = measure("MatBuffers.encoded", buffers::encoded);
+        }
+        try (MatBuffers buffers = MatBuffers.acquire()) {
+            Mat image = Imgcodecs.imdecode(buffers.encoded(frames[0]), Imgcodecs.IMREAD_COLOR);
+            assertThat(image.empty()).isFalse();
+            image.release();
+        }
+
+        assertThat(reused[0]).isLessThanOrEqualTo(perFrame[0]);
+    }
+
+    /**
+     * @return heap bytes and nanoseconds per call
+     */
+    private static double[] measure(String label, Consumer<byte[]> input) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            input.accept(frames[i % FRAME_VARIANTS]);
+        }
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            input.accept(frames[i % FRAME_VARIANTS]);
+        }
+        double nanosPerCall = (double) (System.nanoTime() - start) / CALLS;
+        double bytesPerCall = (double) (THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore) / CALLS;
+        System.out.printf("%-20s %8.1f heap bytes/frame %10.0f ns/frame (frames of %d-%d bytes)%n",
+                          label, bytesPerCall, nanosPerCall, minLength(), maxLength());
+        return new double[] {bytesPerCall, nanosPerCall};
+    }
+
+    private static int minLength() {
+        int min = Integer.MAX_VALUE;
+        for (byte[] frame : frames) {
+            min = Math.min(min, frame.length);
+        }
+        return min;
+    }
+
+    private static int maxLength() {
+        int max = 0;
+        for (byte[] frame : frames) {
+            max = Math.max(max, frame.length);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,159 @@
+package com.facerecognition.recognition;
+
+import com.facerecognition.SyntheticFrames;
+import nu.pattern.OpenCV;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Native memory held by per-thread scratch buffers while frames flow through
+ * pools whose threads come and go.
+ *
+ * The frame count defaults to a quick run; soak with -Dsoak.frames=100000.
+ */
+class MatBuffersSoakTest {
+
+    private static final int FRAMES = Integer.getInteger("soak.frames", 5_000);
+    // Each pool handles this many frames before it is shut down and replaced
+    private static final int FRAMES_PER_POOL = 250;
+    private static final int THREADS_PER_POOL = 4;
+    private static final long MAX_RSS_GROWTH_KB = 64 * 1024;
+    private static final Path STATUS = Path.of("/proc/self/status");
+
+    private static byte[][] frames;
+
+    @BeforeAll
+    static void loadOpenCV() {
+        OpenCV.loadLocally();
+        frames = new byte[][] {
+            SyntheticFrames.jpeg(640, 480, 1),
+            SyntheticFrames.jpeg(1280, 720, 2),
+            SyntheticFrames.jpeg(320, 240, 3)
+        };
+    }
+
+    // Other tests in this JVM may leave live threads with sets; counts are relative to them
+    private static int otherSets() {
+        MatBuffers.releaseTerminatedThreads();
+        return MatBuffers.threadOwnedSets();
+    }
+
+    @Test
+    void releasingThreadsGiveTheirSetBackWhenTheyEnd() throws Exception {
+        int before = otherSets();
+        ThreadFactory releasing = MatBuffers.releasingOnExit(Thread.ofPlatform().daemon(true).factory());
+        runPool(releasing, 0, 200);
+        assertThat(MatBuffers.threadOwnedSets()).isEqualTo(before);
+    }
+
+    @Test
+    void setsOfThreadsThatEndedWithoutReleasingAreSweptUp() throws Exception {
+        int before = otherSets();
+        runPool(Thread.ofPlatform().daemon(true).factory(), 0, 200);
+        assertThat(MatBuffers.threadOwnedSets()).isGreaterThan(before);
+        assertThat(otherSets()).isEqualTo(before);
+    }
+
+    @Test
+    void residentMemoryStaysFlatUnderThreadChurn() throws Exception {
+        assumeTrue(Files.exists(STATUS), "needs /proc/self/status");
+        int before = otherSets();
+        ThreadFactory releasing = MatBuffers.releasingOnExit(Thread.ofPlatform().daemon(true).factory());
+        // Let the allocator and codec reach their steady state before the baseline
+        int warmup = Math.max(FRAMES / 10, FRAMES_PER_POOL * 2);
+        for (int frame = 0; frame < warmup; frame += FRAMES_PER_POOL) {
+            runPool(releasing, frame, FRAMES_PER_POOL);
+        }
+        System.gc();
+        long baselineKb = residentKb();
+        int maxSets = 0;
+        long maxRssKb = baselineKb;
+        StringBuilder checkpoints = new StringBuilder();
+        int nextCheckpoint = FRAMES / 5;
+
+        for (int frame = 0; frame < FRAMES; frame += FRAMES_PER_POOL) {
+            maxSets = Math.max(maxSets, runPool(releasing, frame, Math.min(FRAMES_PER_POOL, FRAMES - frame)));
+            long rssKb = residentKb();
+            maxRssKb = Math.max(maxRssKb, rssKb);
+            if (frame + FRAMES_PER_POOL >= nextCheckpoint) {
+                checkpoints.append(String.format(" %d:%d", frame + FRAMES_PER_POOL, rssKb / 1024));
+                nextCheckpoint += FRAMES / 5;
+            }
+        }
+        System.gc();
+        long finalKb = residentKb();
+
+        System.out.printf("%d frames on %d pools: RSS baseline %d MB, peak %d MB, final %d MB; at most %d thread-owned sets%n",
+                          FRAMES, (FRAMES + FRAMES_PER_POOL - 1) / FRAMES_PER_POOL,
+                          baselineKb / 1024, maxRssKb / 1024, finalKb / 1024, maxSets);
+        System.out.println("RSS MB after frames:" + checkpoints);
+        assertThat(maxSets).isLessThanOrEqualTo(before + THREADS_PER_POOL);
+        assertThat(MatBuffers.threadOwnedSets()).isEqualTo(before);
+        assertThat(finalKb - baselineKb).isLessThan(MAX_RSS_GROWTH_KB);
+    }
+
+    /**
+     * Decode and downscale frames on a fresh pool, then shut it down
+     *
+     * @return the thread-owned sets alive once every frame was queued
+     */
+    private static int runPool(ThreadFactory threadFactory, int firstFrame, int count) throws Exception {
+        // The pool reports termination before its threads have run off their task, so join them
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS_PER_POOL, runnable -> {
+            Thread thread = threadFactory.newThread(runnable);
+            threads.add(thread);
+            return thread;
+        });
+        for (int i = 0; i < count; i++) {
+            byte[] jpeg = frames[(firstFrame + i) % frames.length];
+            pool.execute(() -> process(jpeg));
+        }
+        pool.shutdown();
+        int sets = MatBuffers.threadOwnedSets();
+        assertThat(pool.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return sets;
+    }
+
+    private static void process(byte[] jpeg) {
+        try (MatBuffers buffers = MatBuffers.acquire()) {
+            Mat image = Imgcodecs.imdecode(buffers.encoded(jpeg), Imgcodecs.IMREAD_COLOR);
+            try {
+                Imgproc.cvtColor(image, buffers.gray, Imgproc.COLOR_BGR2GRAY);
+                Imgproc.resize(buffers.gray, buffers.reduced, new Size(160, 120));
+                Imgproc.equalizeHist(buffers.reduced, buffers.equalized);
+            } finally {
+                image.release();
+            }
+        }
+    }
+
+    private static long residentKb() throws IOException {
+        for (String line : Files.readAllLines(STATUS)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D+", ""));
+            }
+        }
+        throw new IllegalStateException("VmRSS not in /proc/self/status");
+    }
+}
@@ -0,0 +1,104 @@
+package com.facerecognition.service;
+
+import com.facerecognition.SyntheticFrames;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.opencv.core.Mat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Detection latency per megapixel of source frame at 1, 2 and 8 MP, with the cascade run
+ * on the full frame (face.detection.working.max.dimension=0) and at the configured
+ * working resolution.
+ *
+ * This is the pipeline's detectFrame, which sizes its minimum face relative to the frame
+ * height, so the cascade scans the same number of windows at any resolution and the
+ * per-megapixel cost falls as frames grow.
+ *
+ * Run with: mvn test -Dbenchmark=true -Dtest=DetectionLatencyBenchmarkTest
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DetectionLatencyBenchmarkTest {
+
+    private static final int[][] FRAME_SIZES = {{1280, 800}, {1920, 1080}, {3840, 2160}};
+    private static final int WARMUP_RUNS = 1;
+
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+
+    private Object configuredDimension;
+
+    @BeforeEach
+    void rememberWorkingDimension() {
+        configuredDimension = ReflectionTestUtils.getField(faceRecognitionService, "workingMaxDimension");
+    }
+
+    @AfterEach
+    void restoreWorkingDimension() {
+        ReflectionTestUtils.setField(faceRecognitionService, "workingMaxDimension", configuredDimension);
+    }
+
+    @Test
+    void pipelineDetectionLatencyPerMegapixel() {
+        double[][] millis = measure("detectFrame", FRAME_SIZES, 3, 3,
+                                    frame -> faceRecognitionService.detectFrame(frame, "benchmark", 0));
+
+        // Same window count at every resolution, so the working copy must at least not cost more than it saves
+        int largest = FRAME_SIZES.length - 1;
+        assertThat(millis[1][largest]).isLessThan(millis[0][largest] * 1.5);
+    }
+
+    /**
+     * Median milliseconds per frame size, row 0 at full resolution and row 1 at the working resolution
+     */
+    private double[][] measure(String label, int[][] frameSizes, int fullRuns, int workingRuns, Consumer<Mat> detection) {
+        double[][] millis = new double[2][frameSizes.length];
+        for (int i = 0; i < frameSizes.length; i++) {
+            Mat frame = SyntheticFrames.mat(frameSizes[i][0], frameSizes[i][1], i);
+            try {
+                ReflectionTestUtils.setField(faceRecognitionService, "workingMaxDimension", 0);
+                millis[0][i] = medianMillis(frame, detection, 0, fullRuns);
+                ReflectionTestUtils.setField(faceRecognitionService, "workingMaxDimension", configuredDimension);
+                millis[1][i] = medianMillis(frame, detection, WARMUP_RUNS, workingRuns);
+            } finally {
+                frame.release();
+            }
+        }
+
+        System.out.printf("%s%n%-10s %6s %10s %12s %12s %14s%n",
+                          label, "frame", "MP", "full ms", "working ms", "full ms/MP", "working ms/MP");
+        for (int i = 0; i < frameSizes.length; i++) {
+            double megapixels = frameSizes[i][0] * frameSizes[i][1] / 1_000_000.0;
+            System.out.printf("%-10s %6.2f %10.1f %12.1f %12.1f %14.1f%n",
+                              frameSizes[i][0] + "x" + frameSizes[i][1], megapixels, millis[0][i], millis[1][i],
+                              millis[0][i] / megapixels, millis[1][i] / megapixels);
+        }
+        return millis;
+    }
+
+    private static double medianMillis(Mat frame, Consumer<Mat> detection, int warmupRuns, int runs) {
+        for (int i = 0; i < warmupRuns; i++) {
+            detection.accept(frame);
+        }
+        double[] millis = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            detection.accept(frame);
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(millis);
+        return millis[runs / 2];
+    }
+}
@@ -0,0 +1,108 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.DetectionFaceHit;
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.repository.DetectionLogRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sustained insert throughput of the write-behind writer against one row per
+ * transaction, with as many concurrent producers as persist workers.
+ *
+ * Run with: mvn test -Dbenchmark=true -Dtest=DetectionLogWriterThroughputTest
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DetectionLogWriterThroughputTest {
+
+    private static final int ROWS = 20_000;
+    private static final int WARMUP_ROWS = 2_000;
+
+    @Autowired
+    private DetectionLogWriter detectionLogWriter;
+
+    @Autowired
+    private DetectionLogRepository detectionLogRepository;
+
+    @Autowired
+    private TransactionRunner transactionRunner;
+
+    @Value("${face.pipeline.persist.workers:32}")
+    private int producers;
+
+    @Test
+    void batchedInsertsOutrunOneRowPerTransaction() throws Exception {
+        Inserter batched = log -> detectionLogWriter.save(log).join();
+        Inserter singleRow = log -> transactionRunner.execute("singleRowInsert", () -> detectionLogRepository.save(log));
+
+        insert(singleRow, WARMUP_ROWS);
+        insert(batched, WARMUP_ROWS);
+
+        double singleRowPerSecond = insert(singleRow, ROWS);
+        double batchedPerSecond = insert(batched, ROWS);
+
+        System.out.printf("%d rows, %d producers: one row per transaction %.0f rows/s, write-behind %.0f rows/s (%.1fx)%n",
+                          ROWS, producers, singleRowPerSecond, batchedPerSecond, batchedPerSecond / singleRowPerSecond);
+        System.out.println("Transactions: " + transactionRunner.getStats());
+        System.out.println("Writer: " + detectionLogWriter.getStats());
+
+        assertThat(batchedPerSecond).isGreaterThan(singleRowPerSecond);
+    }
+
+    @FunctionalInterface
+    private interface Inserter {
+        void insert(DetectionLog detectionLog) throws Exception;
+    }
+
+    /**
+     * @return rows per second over all producers
+     */
+    private double insert(Inserter inserter, int rows) throws Exception {
+        long before = detectionLogRepository.count();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(producers);
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                futures.add(executor.submit(() -> {
+                    for (int i = producer; i < rows; i += producers) {
+                        inserter.insert(detectionLog(i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertThat(detectionLogRepository.count() - before).isEqualTo(rows);
+        return rows / seconds;
+    }
+
+    private static DetectionLog detectionLog(int i) {
+        DetectionLog detectionLog = new DetectionLog();
+        detectionLog.setCameraId("throughput-" + (i % 8));
+        detectionLog.setCameraType("benchmark");
+        detectionLog.setLocationAddress("Unknown Location");
+        detectionLog.setConfidenceScore(0.0);
+        detectionLog.setDetectionTime(LocalDateTime.now());
+        detectionLog.setFaceHits(List.of(new DetectionFaceHit(null, null, null, 0.4, false, 10, 20, 120, 120)));
+        return detectionLog;
+    }
+}
@@ -0,0 +1,115 @@
+package com.facerecognition.service;
+
+import com.facerecognition.SyntheticFrames;
+import com.facerecognition.dto.DetectionRequest;
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.model.Person;
+import com.facerecognition.pipeline.FrameContext;
+import com.facerecognition.recognition.MatchResult;
+import com.facerecognition.repository.DetectionLogRepository;
+import com.facerecognition.repository.PersonRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isActualTransactionActive;
+
+/**
+ * Connection hold times of the detection path's writes. Detection, encoding and
+ * matching run before any transaction begins; the transactions only cover the
+ * inserts and the notification status update.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class DetectionTransactionHoldTimeTest {
+
+    // Generous for an in-memory insert on a loaded CI box, far below one frame's CPU phase
+    private static final double MAX_HOLD_MILLIS = 250;
+
+    @Autowired
+    private DetectionService detectionService;
+
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+
+    @Autowired
+    private TransactionRunner transactionRunner;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private DetectionLogRepository detectionLogRepository;
+
+    @MockBean
+    private EmailService emailService;
+
+    @MockBean
+    private SmsService smsService;
+
+    @Test
+    void transactionsCoverOnlyTheWrites() throws Exception {
+        Person person = new Person();
+        person.setName("Hold Time");
+        person.setEmail("hold.time@example.com");
+        person.setPhoneNumber("+15550100");
+        person = personRepository.save(person);
+
+        DetectionRequest request = new DetectionRequest();
+        request.setCameraId("hold-time");
+        request.setImageBytes(SyntheticFrames.jpeg(640, 480, 17));
+        FrameContext frame = new FrameContext(request);
+
+        // The CPU phase, stage by stage as the pipeline runs it
+        long cpuStart = System.nanoTime();
+        assertThat(detectionService.decode(frame)).isTrue();
+        assertThat(isActualTransactionActive()).isFalse();
+        frame.setAnalysis(faceRecognitionService.detectFrame(frame.getImage(), frame.getCameraId(), frame.getDecodeMillis()));
+        faceRecognitionService.encodeFrame(frame.getImage(), frame.getAnalysis(), frame.getImageLabel());
+        List<MatchResult> faceResults = new ArrayList<>(faceRecognitionService.matchFrame(frame.getAnalysis(), frame.getImageLabel()));
+        assertThat(isActualTransactionActive()).isFalse();
+        double cpuMillis = (System.nanoTime() - cpuStart) / 1_000_000.0;
+        frame.releaseImage();
+
+        // Nobody is registered from this frame; add a recognised face so the notification update runs too
+        faceResults.add(MatchResult.builder()
+            .matched(true)
+            .faceDetected(true)
+            .personId(person.getId())
+            .score(0.9)
+            .faceWidth(100)
+            .faceHeight(100)
+            .build());
+        frame.setFaceResults(faceResults);
+
+        detectionService.persist(frame);
+        detectionService.notifyMatches(frame);
+
+        DetectionLog saved = detectionLogRepository.findById(frame.getSavedLog().getId()).orElseThrow();
+        assertThat(saved.getPerson().getId()).isEqualTo(person.getId());
+
+        Map<String, Object> insert = holdTime("detectionBatchInsert");
+        Map<String, Object> statusUpdate = holdTime("notificationStatusUpdate");
+        System.out.printf("CPU phase %.1f ms; detectionBatchInsert max hold %.1f ms; notificationStatusUpdate max hold %.1f ms%n",
+                          cpuMillis, insert.get("maxHoldMillis"), statusUpdate.get("maxHoldMillis"));
+
+        assertThat((long) insert.get("transactions")).isPositive();
+        assertThat((long) statusUpdate.get("transactions")).isPositive();
+        assertThat((double) insert.get("maxHoldMillis")).isLessThan(MAX_HOLD_MILLIS).isLessThan(cpuMillis);
+        assertThat((double) statusUpdate.get("maxHoldMillis")).isLessThan(MAX_HOLD_MILLIS).isLessThan(cpuMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> holdTime(String transaction) {
+        Map<String, Object> stats = transactionRunner.getStats();
+        assertThat(stats).containsKey(transaction);
+        return (Map<String, Object>) stats.get(transaction);
+    }
+}
@@ -0,0 +1,113 @@
+package com.facerecognition.service;
+
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.recognition.GalleryEntry;
+import com.facerecognition.recognition.GalleryMatch;
+import com.facerecognition.repository.FaceDataRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FaceGalleryTest {
+
+    private static final int K = 5;
+
+    @Test
+    void batchedTopKMatchesPerQueryTopK() {
+        Random random = new Random(42);
+        FaceGallery gallery = exactGallery(randomEntries(5_000, random));
+        // More queries than one tile, and a batch size that does not divide into tiles
+        List<FaceEncoding> queries = randomEncodings(37, random);
+
+        List<List<GalleryMatch>> batched = gallery.findTopKBatch(queries, K);
+
+        assertThat(batched).hasSize(queries.size());
+        for (int q = 0; q < queries.size(); q++) {
+            List<GalleryMatch> single = gallery.findTopK(queries.get(q), K);
+            assertThat(batched.get(q)).hasSize(K);
+            for (int i = 0; i < K; i++) {
+                assertThat(batched.get(q).get(i).getFaceDataId()).isEqualTo(single.get(i).getFaceDataId());
+                assertThat(batched.get(q).get(i).getPersonId()).isEqualTo(single.get(i).getPersonId());
+                assertThat(batched.get(q).get(i).getScore()).isCloseTo(single.get(i).getScore(), within(1e-5));
+            }
+        }
+    }
+
+    @Test
+    void batchedTopKOnAGallerySmallerThanK() {
+        Random random = new Random(7);
+        FaceGallery gallery = exactGallery(randomEntries(3, random));
+
+        List<List<GalleryMatch>> batched = gallery.findTopKBatch(randomEncodings(4, random), K);
+
+        assertThat(batched).allSatisfy(matches -> assertThat(matches).hasSize(3));
+    }
+
+    /**
+     * Run with: mvn test -Dbenchmark=true -Dtest=FaceGalleryTest
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void batchedTopKThroughput() {
+        Random random = new Random(1);
+        int gallerySize = 100_000;
+        FaceGallery gallery = exactGallery(randomEntries(gallerySize, random));
+        List<FaceEncoding> queries = randomEncodings(32, random);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (FaceEncoding query : queries) {
+                gallery.findTopK(query, K);
+            }
+            double singleMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            gallery.findTopKBatch(queries, K);
+            double batchMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            System.out.printf("gallery %d, %d queries: per-query %.1f ms (%.0f queries/s), batched %.1f ms (%.0f queries/s)%n",
+                              gallerySize, queries.size(), singleMillis, queries.size() * 1000 / singleMillis,
+                              batchMillis, queries.size() * 1000 / batchMillis);
+        }
+    }
+
+    static FaceGallery exactGallery(List<GalleryEntry> entries) {
+        FaceDataRepository repository = mock(FaceDataRepository.class);
+        when(repository.findGalleryEntries()).thenReturn(entries);
+        FaceGallery gallery = new FaceGallery(repository);
+        ReflectionTestUtils.setField(gallery, "indexType", "exact");
+        ReflectionTestUtils.setField(gallery, "snapshotEnabled", false);
+        gallery.init();
+        return gallery;
+    }
+
+    static List<GalleryEntry> randomEntries(int count, Random random) {
+        List<FaceEncoding> encodings = randomEncodings(count, random);
+        List<GalleryEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new GalleryEntry(i + 1, i / 3 + 1, encodings.get(i)));
+        }
+        return entries;
+    }
+
+    static List<FaceEncoding> randomEncodings(int count, Random random) {
+        List<FaceEncoding> encodings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] intensities = new float[FaceEncoding.DIMENSION];
+            for (int j = 0; j < intensities.length; j++) {
+                intensities[j] = random.nextFloat() * 255;
+            }
+            encodings.add(FaceEncoding.fromIntensities(intensities));
+        }
+        return encodings;
+    }
+}
@@ -0,0 +1,60 @@
+package com.facerecognition.service;
+
+import com.facerecognition.SyntheticFrames;
+import com.facerecognition.model.DetectionLog;
+import nu.pattern.OpenCV;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameDeduplicationServiceTest {
+
+    private static byte[] frame;
+
+    private FrameDeduplicationService service;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        OpenCV.loadLocally();
+        frame = SyntheticFrames.jpeg(320, 240, 1);
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = new FrameDeduplicationService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxDistance", 4);
+        ReflectionTestUtils.setField(service, "maxAgeMillis", 60_000L);
+    }
+
+    @Test
+    void reuseProcessesDuplicatesUntilTheReferenceHasAResult() {
+        ReflectionTestUtils.setField(service, "mode", FrameDeduplicationService.Mode.REUSE);
+
+        FrameDeduplicationService.Check reference = service.check("cam-1", frame);
+        assertThat(reference.isDuplicate()).isFalse();
+
+        // Reference still in the pipeline: nothing to reuse, so the duplicate is processed too
+        FrameDeduplicationService.Check whileProcessing = service.check("cam-1", frame);
+        assertThat(whileProcessing.isDuplicate()).isFalse();
+
+        DetectionLog result = new DetectionLog();
+        service.recordResult("cam-1", whileProcessing.getHash(), result);
+        FrameDeduplicationService.Check afterResult = service.check("cam-1", frame);
+        assertThat(afterResult.isDuplicate()).isTrue();
+        assertThat(afterResult.getPreviousResult()).isSameAs(result);
+    }
+
+    @Test
+    void dropSkipsDuplicatesWithoutAResult() {
+        ReflectionTestUtils.setField(service, "mode", FrameDeduplicationService.Mode.DROP);
+
+        assertThat(service.check("cam-1", frame).isDuplicate()).isFalse();
+        FrameDeduplicationService.Check duplicate = service.check("cam-1", frame);
+        assertThat(duplicate.isDuplicate()).isTrue();
+        assertThat(duplicate.getPreviousResult()).isNull();
+    }
+}
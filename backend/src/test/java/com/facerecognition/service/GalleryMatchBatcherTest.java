@@ -0,0 +1,78 @@
+package com.facerecognition.service;
+
+import com.facerecognition.recognition.FaceEncoding;
+import com.facerecognition.recognition.GalleryMatch;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GalleryMatchBatcherTest {
+
+    private final Random random = new Random(3);
+    private final FaceGallery gallery = FaceGalleryTest.exactGallery(FaceGalleryTest.randomEntries(500, random));
+
+    @Test
+    void batchedLookupsMatchDirectLookups() {
+        GalleryMatchBatcher batcher = batcher(2);
+        batcher.init();
+        try {
+            List<FaceEncoding> queries = FaceGalleryTest.randomEncodings(50, random);
+            List<CompletableFuture<List<GalleryMatch>>> results = new ArrayList<>();
+            for (FaceEncoding query : queries) {
+                results.add(batcher.submit(query, 3));
+            }
+            for (int i = 0; i < queries.size(); i++) {
+                assertThat(results.get(i).join()).isEqualTo(gallery.findTopK(queries.get(i), 3));
+            }
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownFailsQueuedLookups() {
+        // No workers started, so every lookup stays queued
+        GalleryMatchBatcher batcher = batcher(0);
+        batcher.init();
+        List<CompletableFuture<List<GalleryMatch>>> queued = new ArrayList<>();
+        for (FaceEncoding query : FaceGalleryTest.randomEncodings(10, random)) {
+            queued.add(batcher.submit(query, 3));
+        }
+        assertThat(queued).noneMatch(CompletableFuture::isDone);
+
+        batcher.shutdown();
+
+        assertThat(queued).allMatch(CompletableFuture::isCompletedExceptionally);
+        assertThatThrownBy(() -> queued.get(0).join())
+            .isInstanceOf(CompletionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void lookupsAfterShutdownFailImmediately() {
+        GalleryMatchBatcher batcher = batcher(1);
+        batcher.init();
+        batcher.shutdown();
+
+        CompletableFuture<List<GalleryMatch>> late = batcher.submit(FaceGalleryTest.randomEncodings(1, random).get(0), 3);
+
+        assertThat(late).isCompletedExceptionally();
+    }
+
+    private GalleryMatchBatcher batcher(int workers) {
+        GalleryMatchBatcher batcher = new GalleryMatchBatcher(gallery);
+        ReflectionTestUtils.setField(batcher, "enabled", true);
+        ReflectionTestUtils.setField(batcher, "maxBatchSize", 16);
+        ReflectionTestUtils.setField(batcher, "maxWaitMillis", 2L);
+        ReflectionTestUtils.setField(batcher, "workerCount", workers);
+        return batcher;
+    }
+}
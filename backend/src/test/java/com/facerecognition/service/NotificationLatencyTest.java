@@ -0,0 +1,122 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.model.Person;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * A mail server that takes SEND_MILLIS per message, with the sender blocked inside a
+ * monitor the way SMTPTransport is, must not slow down virtual-thread pipeline work.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class NotificationLatencyTest {
+
+    private static final int NOTIFICATIONS = 100;
+    private static final long SEND_MILLIS = 100;
+    private static final int PIPELINE_TASKS = 1_000;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private DetectionService detectionService;
+
+    @Test
+    void slowMailServerDoesNotStallVirtualThreadWork() throws Exception {
+        Object transportLock = new Object();
+        CountDownLatch sent = new CountDownLatch(NOTIFICATIONS);
+        AtomicInteger sentOnVirtualThreads = new AtomicInteger();
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        doAnswer(invocation -> {
+            if (Thread.currentThread().isVirtual()) {
+                sentOnVirtualThreads.incrementAndGet();
+            }
+            synchronized (transportLock) {
+                Thread.sleep(SEND_MILLIS);
+            }
+            sent.countDown();
+            return null;
+        }).when(mailSender).send(any(MimeMessage.class));
+
+        try (ExecutorService notifyStage = Executors.newVirtualThreadPerTaskExecutor()) {
+            long submitStart = System.nanoTime();
+            List<Future<?>> submissions = new ArrayList<>(NOTIFICATIONS);
+            for (int i = 0; i < NOTIFICATIONS; i++) {
+                DetectionLog detectionLog = detectionLog(i);
+                submissions.add(notifyStage.submit(() -> detectionService.sendNotifications(person(), detectionLog)));
+            }
+            for (Future<?> submission : submissions) {
+                submission.get();
+            }
+            long submitMillis = elapsedMillis(submitStart);
+
+            // Short blocking steps on virtual threads, like the persist and publish stages
+            long pipelineStart = System.nanoTime();
+            List<Future<?>> tasks = new ArrayList<>(PIPELINE_TASKS);
+            for (int i = 0; i < PIPELINE_TASKS; i++) {
+                tasks.add(notifyStage.submit(() -> {
+                    Thread.sleep(5);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            long pipelineMillis = elapsedMillis(pipelineStart);
+
+            System.out.printf("%d notifications handed off in %d ms; %d virtual-thread tasks in %d ms while %d sends were pending%n",
+                              NOTIFICATIONS, submitMillis, PIPELINE_TASKS, pipelineMillis, sent.getCount());
+
+            // Serialized sends take NOTIFICATIONS * SEND_MILLIS; neither the hand-off nor the other work waits for them
+            assertThat(submitMillis).isLessThan(NOTIFICATIONS * SEND_MILLIS / 2);
+            assertThat(pipelineMillis).isLessThan(NOTIFICATIONS * SEND_MILLIS / 2);
+            assertThat(sent.getCount()).isPositive();
+        }
+
+        assertThat(sent.await(NOTIFICATIONS * SEND_MILLIS * 3, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(sentOnVirtualThreads.get()).isZero();
+    }
+
+    private static Person person() {
+        Person person = new Person();
+        person.setName("Test Person");
+        person.setEmail("test@example.com");
+        return person;
+    }
+
+    private static DetectionLog detectionLog(long id) {
+        DetectionLog detectionLog = new DetectionLog();
+        detectionLog.setId(-1 - id);
+        detectionLog.setCameraId("cam-1");
+        detectionLog.setDetectionTime(LocalDateTime.now());
+        detectionLog.setConfidenceScore(0.9);
+        return detectionLog;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,69 @@
+package com.facerecognition.service;
+
+import com.facerecognition.model.DetectionLog;
+import com.facerecognition.repository.DetectionLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecentDetectionsCacheTest {
+
+    private DetectionLogRepository repository;
+    private RecentDetectionsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(DetectionLogRepository.class);
+        cache = new RecentDetectionsCache(repository);
+        ReflectionTestUtils.setField(cache, "globalSize", 10);
+        ReflectionTestUtils.setField(cache, "cameraSize", 5);
+        cache.init();
+    }
+
+    @Test
+    void readsForUnknownCamerasDoNotCreateBuffers() {
+        DetectionLog stored = detectionLog(1L, "cam-1");
+        when(repository.findLatestByCamera(eq("cam-1"), any(Pageable.class))).thenReturn(List.of(stored));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.latestByCamera("no-such-camera-" + i, 5)).isEmpty();
+        }
+        assertThat(cache.latestByCamera("cam-1", 5)).containsExactly(stored);
+
+        assertThat(cache.getStats()).containsEntry("cameras", 0).containsEntry("misses", 101L);
+    }
+
+    @Test
+    void logSavedWhileTheBufferLoadsAppearsOnce() {
+        DetectionLog older = detectionLog(1L, "cam-1");
+        DetectionLog saved = detectionLog(2L, "cam-1");
+        // The database already holds the log that is recorded before the first read
+        when(repository.findLatestByCamera(eq("cam-1"), any(Pageable.class))).thenReturn(List.of(saved, older));
+        when(repository.findLatest(any(Pageable.class))).thenReturn(List.of(saved, older));
+
+        cache.record(saved);
+
+        assertThat(cache.latestByCamera("cam-1", 5)).containsExactly(saved, older);
+        assertThat(cache.latest(5)).containsExactly(saved, older);
+        cache.record(saved);
+        assertThat(cache.latestByCamera("cam-1", 5)).containsExactly(saved, older);
+    }
+
+    private static DetectionLog detectionLog(Long id, String cameraId) {
+        DetectionLog detectionLog = new DetectionLog();
+        detectionLog.setId(id);
+        detectionLog.setCameraId(cameraId);
+        detectionLog.setDetectionTime(LocalDateTime.of(2024, 1, 1, 12, 0).plusSeconds(id));
+        return detectionLog;
+    }
+}
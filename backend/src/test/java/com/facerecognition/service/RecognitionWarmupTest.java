@@ -0,0 +1,79 @@
+package com.facerecognition.service;
+
+import nu.pattern.OpenCV;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class RecognitionWarmupTest {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    @Test
+    void keepsWarmingWhilePassesAreStillGettingFaster() throws Exception {
+        FaceRecognitionService recognition = mock(FaceRecognitionService.class);
+        AtomicInteger passes = new AtomicInteger();
+        // 800, 400, 200, 100, 100, ... ms: each round is well within tolerance of being no slower
+        doAnswer(invocation -> {
+            Thread.sleep(Math.max(100, 800 >> passes.getAndIncrement()));
+            return null;
+        }).when(recognition).warmUp(any());
+
+        RecognitionWarmup warmup = warmup(recognition);
+        warmup.start();
+        awaitFinished(warmup);
+
+        assertThat(warmup.getState()).isEqualTo(RecognitionWarmup.State.READY);
+        assertThat(warmup.isReady()).isTrue();
+        // Settles on the first two 100 ms rounds, not on the first round that was no slower
+        assertThat((Integer) warmup.getStats().get("rounds")).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    void failedPassLeavesTheServiceUnavailable() throws Exception {
+        FaceRecognitionService recognition = mock(FaceRecognitionService.class);
+        doThrow(new IOException("cascade missing")).when(recognition).warmUp(any());
+
+        RecognitionWarmup warmup = warmup(recognition);
+        warmup.start();
+        awaitFinished(warmup);
+
+        assertThat(warmup.getState()).isEqualTo(RecognitionWarmup.State.FAILED);
+        assertThat(warmup.isReady()).isFalse();
+    }
+
+    private static RecognitionWarmup warmup(FaceRecognitionService recognition) {
+        RecognitionWarmup warmup = new RecognitionWarmup(recognition);
+        ReflectionTestUtils.setField(warmup, "enabled", true);
+        ReflectionTestUtils.setField(warmup, "parallelism", 1);
+        ReflectionTestUtils.setField(warmup, "minRounds", 2);
+        ReflectionTestUtils.setField(warmup, "maxRounds", 20);
+        ReflectionTestUtils.setField(warmup, "window", 1);
+        ReflectionTestUtils.setField(warmup, "tolerance", 0.25);
+        ReflectionTestUtils.setField(warmup, "frameWidth", 64);
+        ReflectionTestUtils.setField(warmup, "frameHeight", 48);
+        return warmup;
+    }
+
+    private static void awaitFinished(RecognitionWarmup warmup) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (warmup.getState() == RecognitionWarmup.State.WARMING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Map<String, Object> stats = warmup.getStats();
+        assertThat(warmup.getState()).as("warm-up state, stats %s", stats).isNotEqualTo(RecognitionWarmup.State.WARMING);
+    }
+}